@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks selected by jmh.include, writes the JSON results to jmh.result and
+ * compares them with the baseline at jmh.baseline. Every benchmark reports an average time, so
+ * a benchmark regresses when its score, less its error margin, exceeds the baseline score by
+ * more than jmh.threshold. The process exits with status 1 on any regression, and when there
+ * is no baseline to compare with.
+ *
+ * With jmh.updateBaseline=true the results replace the baseline instead.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path result = Paths.get(System.getProperty("jmh.result", "target/jmh-result.json"));
+        Path baseline = Paths.get(System.getProperty("jmh.baseline", "benchmarks/baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("jmh.threshold", "0.10"));
+
+        Files.createDirectories(result.toAbsolutePath().getParent());
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", ".*"))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+
+        if (Boolean.parseBoolean(System.getProperty("jmh.updateBaseline", "false"))) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline at " + baseline + ", record one with -Djmh.updateBaseline=true");
+            System.exit(1);
+        }
+
+        if (compare(read(baseline), read(result), threshold) > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints one line per benchmark present in both runs and returns the number of regressions.
+     */
+    static int compare(Map<String, JsonNode> baseline, Map<String, JsonNode> current, double threshold) {
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+
+            JsonNode metric = entry.getValue().get("primaryMetric");
+            JsonNode beforeMetric = before.get("primaryMetric");
+            if (!metric.get("scoreUnit").asText().equals(beforeMetric.get("scoreUnit").asText())) {
+                System.out.printf("SKIPPED    %s: unit changed%n", entry.getKey());
+                continue;
+            }
+
+            double score = metric.get("score").asDouble();
+            double error = metric.path("scoreError").asDouble(0);
+            double reference = beforeMetric.get("score").asDouble();
+            double change = (score - reference) / reference;
+            boolean regressed = !Double.isNaN(error) && score - error > reference * (1 + threshold);
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSION" : "OK",
+                    entry.getKey(), reference, score, metric.get("scoreUnit").asText(), change * 100);
+        }
+        return regressions;
+    }
+
+    /**
+     * Reads a JMH JSON result file, keyed by benchmark name and parameters.
+     */
+    static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(file.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            results.put(node.get("benchmark").asText() + (params.isEmpty() ? "" : params.toString()), node);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Mapping pages of sessions with fetched participants to DTOs. The participant lists are
+ * initialized, so the mapper never reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionMapperBenchmark {
+
+    private static final int PARTICIPANTS = 10;
+
+    @Param({"10", "100", "10000"})
+    private int sessionCount;
+
+    private SessionMapperImpl mapper;
+
+    private List<Session> sessions;
+
+    @Setup
+    public void setup() {
+        // Stub-only collaborators: the participants are fetched, so no lookup returns anything
+        SessionService sessionService = mock(SessionService.class, withSettings().stubOnly());
+        when(sessionService.findParticipantIds(anyCollection())).thenReturn(Collections.emptyMap());
+        mapper = new SessionMapperImpl(sessionService,
+                mock(TeacherService.class, withSettings().stubOnly()),
+                mock(UserService.class, withSettings().stubOnly()));
+
+        Teacher teacher = Teacher.builder().id(1L).lastName("DELAHAYE").firstName("Margot").build();
+        List<User> users = new ArrayList<>();
+        for (long i = 1; i <= PARTICIPANTS; i++) {
+            users.add(User.builder().id(i).email("user" + i + "@test.com").lastName("Doe").firstName("John")
+                    .password("password").admin(false).build());
+        }
+
+        sessions = new ArrayList<>(sessionCount);
+        for (long i = 1; i <= sessionCount; i++) {
+            sessions.add(Session.builder()
+                    .id(i)
+                    .name("Session " + i)
+                    .date(new Date())
+                    .description("Benchmark session")
+                    .capacity(20)
+                    .teacher(teacher)
+                    .users(new ArrayList<>(users))
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<SessionDto> toDto() {
+        return mapper.toDto(sessions);
+    }
+}
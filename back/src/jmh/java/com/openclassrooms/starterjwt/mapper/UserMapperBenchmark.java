@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.UserDto;
+import com.openclassrooms.starterjwt.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a user to its DTO and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private UserMapperImpl mapper;
+
+    private User user;
+
+    private UserDto userDto;
+
+    @Setup
+    public void setup() {
+        mapper = new UserMapperImpl();
+        user = User.builder()
+                .id(1L)
+                .email("yoga@studio.com")
+                .lastName("Admin")
+                .firstName("Admin")
+                .password("password")
+                .admin(true)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        userDto = mapper.toDto(user);
+    }
+
+    @Benchmark
+    public UserDto toDto() {
+        return mapper.toDto(user);
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return mapper.toEntity(userDto);
+    }
+}
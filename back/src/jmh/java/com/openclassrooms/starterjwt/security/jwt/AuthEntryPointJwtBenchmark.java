@@ -0,0 +1,55 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.AuthenticationException;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The 401 answer to an unauthenticated request, envelope serialization included, as paid by
+ * every request of an anonymous flood.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthEntryPointJwtBenchmark {
+
+    private AuthEntryPointJwt entryPoint;
+
+    private MockHttpServletRequest request;
+
+    private final AuthenticationException authException =
+            new InsufficientAuthenticationException("Full authentication is required to access this resource");
+
+    @Setup
+    public void setup() {
+        entryPoint = new AuthEntryPointJwt(new AuthFailureLog(), new ObjectMapper());
+        request = new MockHttpServletRequest("GET", "/api/session");
+        request.setServletPath("/api/session");
+    }
+
+    @Benchmark
+    public int commence() throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        entryPoint.commence(request, response, authException);
+        return response.getContentAsByteArray().length;
+    }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs every HTTP request, and the JPA and JDBC calls made on its thread, on a virtual thread
+ * of its own instead of Tomcat's pool of 200 platform threads. A request blocked on MySQL then
+ * parks cheaply, and the number in flight is bounded by {@code server.tomcat.max-connections}
+ * and the connection pool rather than by the thread count.
+ *
+ * Enabled with {@code oc.app.virtualThreads=true}, as set by the virtual profile, and refuses
+ * to start on a JVM older than Java 21.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "oc.app", name = "virtualThreads", havingValue = "true")
+public class VirtualThreadConfig implements DisposableBean {
+    private final ExecutorService executor;
+
+    public VirtualThreadConfig() {
+        this(VirtualThreads.newExecutor("http-virtual-"));
+    }
+
+    VirtualThreadConfig(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual-thread executors without compiling against Java 21, so the application
+ * keeps its Java 8 target and only needs a Java 21 runtime when virtual threads are enabled.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * An executor starting one virtual thread per task, named {@code prefix} followed by a
+     * counter.
+     *
+     * @throws IllegalStateException when the running JVM has no virtual threads
+     */
+    public static ExecutorService newExecutor(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on Java "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
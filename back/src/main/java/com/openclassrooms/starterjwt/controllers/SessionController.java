@@ -1,52 +1,189 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
+import com.openclassrooms.starterjwt.dto.SessionCursor;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionDtoReader;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.ParticipationStatus;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.security.jwt.StreamTicketRegistry;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionEventBroadcaster;
+import com.openclassrooms.starterjwt.services.SessionImportService;
+import com.openclassrooms.starterjwt.services.SessionQueryService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
-@CrossOrigin(origins = "*", maxAge = 3600)
+@CrossOrigin(origins = "*", maxAge = 3600, exposedHeaders = SessionController.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final SessionQueryService sessionQueryService;
+    private final SessionImportService sessionImportService;
+    private final SessionEventBroadcaster sessionEventBroadcaster;
+    private final StreamTicketRegistry streamTicketRegistry;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionQueryService sessionQueryService,
+                             SessionMapper sessionMapper,
+                             SessionImportService sessionImportService,
+                             SessionEventBroadcaster sessionEventBroadcaster,
+                             StreamTicketRegistry streamTicketRegistry,
+                             ObjectMapper objectMapper,
+                             Validator validator) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.sessionQueryService = sessionQueryService;
+        this.sessionImportService = sessionImportService;
+        this.sessionEventBroadcaster = sessionEventBroadcaster;
+        this.streamTicketRegistry = streamTicketRegistry;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            ResourceVersion version = this.sessionQueryService.findVersion(Long.valueOf(id));
 
-            if (session == null) {
+            if (version == null) {
                 return ResponseEntity.notFound().build();
             }
+            if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+                return null;
+            }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            SessionDto sessionDto = this.sessionQueryService.findById(Long.valueOf(id));
+
+            if (sessionDto == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok().body(sessionDto);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "size", required = false) Integer size,
+                                     @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                     @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                     @RequestParam(value = "teacherId", required = false) Long teacherId,
+                                     WebRequest request) {
+        // A malformed cursor is a 400 even when the collection has not changed
+        SessionCursor after = SessionCursor.decode(cursor);
+
+        ResourceVersion version = this.sessionQueryService.findCollectionVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
+
+        Slice<SessionDto> page = this.sessionQueryService.findPage(after, from, to, teacherId, size);
+        List<SessionDto> sessions = page.getContent();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, SessionCursor.of(sessions.get(sessions.size() - 1)).encode());
+        }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        return response.body(sessions);
+    }
+
+    /**
+     * Server-sent events for every session change, so clients need not poll the list. Browsers
+     * authenticate with a ticket from {@link #streamTicket()} rather than a bearer token.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return this.sessionEventBroadcaster.subscribe();
+    }
+
+    /**
+     * Issues a single-use ticket to open the event stream as the current user.
+     */
+    @PostMapping("/stream/ticket")
+    public ResponseEntity<?> streamTicket() {
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        return ResponseEntity.ok().body(Collections.singletonMap("ticket", this.streamTicketRegistry.issue(userDetails)));
+    }
+
+    /**
+     * Streams every session as a JSON array, one keyset page at a time.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(output)) {
+                generator.writeStartArray();
+
+                SessionCursor cursor = null;
+                Slice<SessionDto> page;
+                do {
+                    page = this.sessionQueryService.findPage(cursor, null, null, null, SessionService.MAX_PAGE_SIZE);
+                    for (SessionDto sessionDto : page.getContent()) {
+                        generator.writeObject(sessionDto);
+                    }
+                    generator.flush();
+
+                    if (page.hasContent()) {
+                        cursor = SessionCursor.of(page.getContent().get(page.getNumberOfElements() - 1));
+                    }
+                } while (page.hasNext());
+
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Creates every session of a JSON array in one transaction, reading the body as a stream.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importSessions(HttpServletRequest request) throws IOException {
+        try {
+            int imported = this.sessionImportService.importSessions(
+                    new SessionDtoReader(this.objectMapper, this.validator, request.getInputStream()));
+
+            return ResponseEntity.ok().body(Collections.singletonMap("imported", imported));
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
     }
 
     @PostMapping()
@@ -73,9 +210,7 @@ public class SessionController {
     @DeleteMapping("{id}")
     public ResponseEntity<?> save(@PathVariable("id") String id) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
-
-            if (session == null) {
+            if (!this.sessionService.exists(Long.valueOf(id))) {
                 return ResponseEntity.notFound().build();
             }
 
@@ -89,8 +224,11 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            ParticipationStatus status = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
+            if (status == ParticipationStatus.WAITLISTED) {
+                return ResponseEntity.accepted().build();
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -0,0 +1,41 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Validators for a conditional GET: a strong ETag and a Last-Modified time. A single resource
+ * is identified by its id and updatedAt, a collection by its size and its latest updatedAt, so
+ * a creation, an update or a deletion each change the tag. The tag relies on updated_at being
+ * stored to the microsecond (DATETIME(6)), so two edits within one second still differ.
+ */
+@Getter
+public class ResourceVersion {
+    private final String eTag;
+
+    private final long lastModified;
+
+    public ResourceVersion(Long key, LocalDateTime updatedAt) {
+        Instant instant = updatedAt != null ? updatedAt.atZone(ZoneId.systemDefault()).toInstant() : null;
+        // The tag keeps the full timestamp precision, Last-Modified is only compared to the second
+        long micros = instant != null ? TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + instant.getNano() / 1000 : 0;
+        this.eTag = "\"" + key + "-" + Long.toString(micros, 36) + "\"";
+        this.lastModified = instant != null ? instant.toEpochMilli() : -1;
+    }
+
+    public static <T> ResourceVersion ofCollection(Collection<T> items, Function<T, LocalDateTime> updatedAt) {
+        LocalDateTime latest = items.stream()
+                .map(updatedAt)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        return new ResourceVersion((long) items.size(), latest);
+    }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Reads a JSON array of sessions one element at a time, validating each element as it goes.
+ * Any malformed or invalid element fails with a BadRequestException naming its position.
+ */
+public class SessionDtoReader implements Iterator<SessionDto> {
+    private final JsonParser parser;
+
+    private final Validator validator;
+
+    private int index = -1;
+
+    private SessionDto next;
+
+    public SessionDtoReader(ObjectMapper objectMapper, Validator validator, InputStream input) {
+        this.validator = validator;
+        try {
+            this.parser = objectMapper.getFactory().createParser(input);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("expected a JSON array of sessions");
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("malformed JSON");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public SessionDto next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SessionDto current = next;
+        next = null;
+        return current;
+    }
+
+    private SessionDto read() {
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            index++;
+            SessionDto sessionDto = parser.readValueAs(SessionDto.class);
+
+            Set<ConstraintViolation<SessionDto>> violations = validator.validate(sessionDto);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<SessionDto> violation = violations.iterator().next();
+                throw new BadRequestException("session #" + index + ": " + violation.getPropertyPath() + " " + violation.getMessage());
+            }
+            return sessionDto;
+        } catch (IOException e) {
+            throw new BadRequestException("malformed JSON at session #" + index);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A change to a session, recorded in the outbox and relayed to the event sinks. {@code eventKey}
+ * identifies the event across redeliveries; {@code userId} is only set for participant changes.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SessionEvent {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        PARTICIPATED,
+        LEFT
+    }
+
+    private final String eventKey;
+
+    private final Type type;
+
+    private final Long sessionId;
+
+    private final Long userId;
+}
@@ -4,4 +4,10 @@ import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 
 public interface SessionMapper extends EntityMapper<SessionDto, Session> {
+    /**
+     * Maps without any database access: the teacher and users are unloaded references built
+     * from their ids, which is all that is needed to write the session and PARTICIPATE rows.
+     * Ids that do not exist surface as a constraint violation when the session is flushed.
+     */
+    Session toReferenceEntity(SessionDto sessionDto);
 }
@@ -2,23 +2,31 @@ package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 public class SessionMapperImpl implements SessionMapper {
 
+    private final SessionService sessionService;
     private final TeacherService teacherService;
     private final UserService userService;
 
-    public SessionMapperImpl(TeacherService teacherService, UserService userService) {
+    public SessionMapperImpl(SessionService sessionService, TeacherService teacherService, UserService userService) {
+        this.sessionService = sessionService;
         this.teacherService = teacherService;
         this.userService = userService;
     }
@@ -29,20 +37,29 @@ public class SessionMapperImpl implements SessionMapper {
             return null;
         }
 
+        return toDto(session, participantIdsOf(Collections.singletonList(session)));
+    }
+
+    private SessionDto toDto(Session session, Map<Long, List<Long>> participantIds) {
         SessionDto sessionDto = new SessionDto();
         sessionDto.setId(session.getId());
         sessionDto.setName(session.getName());
         sessionDto.setDate(session.getDate());
         sessionDto.setDescription(session.getDescription());
+        sessionDto.setCapacity(session.getCapacity());
 
         if (session.getTeacher() != null) {
             sessionDto.setTeacher_id(session.getTeacher().getId());
         }
 
         if (session.getUsers() != null) {
-            sessionDto.setUsers(session.getUsers().stream()
-                .map(User::getId)
-                .collect(Collectors.toList()));
+            if (Hibernate.isInitialized(session.getUsers())) {
+                sessionDto.setUsers(session.getUsers().stream()
+                    .map(User::getId)
+                    .collect(Collectors.toList()));
+            } else {
+                sessionDto.setUsers(participantIds.getOrDefault(session.getId(), new ArrayList<>()));
+            }
         }
 
         sessionDto.setCreatedAt(session.getCreatedAt());
@@ -56,37 +73,78 @@ public class SessionMapperImpl implements SessionMapper {
         if (sessions == null) {
             return null;
         }
+
+        Map<Long, List<Long>> participantIds = participantIdsOf(sessions);
         return sessions.stream()
-            .map(this::toDto)
+            .map(session -> toDto(session, participantIds))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Reads the participant ids of every session whose users were not fetched, in a single query.
+     */
+    private Map<Long, List<Long>> participantIdsOf(List<Session> sessions) {
+        List<Long> sessionIds = sessions.stream()
+            .filter(session -> session != null && session.getUsers() != null && !Hibernate.isInitialized(session.getUsers()))
+            .map(Session::getId)
+            .collect(Collectors.toList());
+
+        return sessionService.findParticipantIds(sessionIds);
+    }
+
+    /**
+     * Loads every referenced user with one query, whatever the number of participants; ids
+     * of users that do not exist are dropped. The teacher is only referenced, not loaded.
+     */
     @Override
     public Session toEntity(SessionDto sessionDto) {
         if (sessionDto == null) {
             return null;
         }
 
+        Session session = toEntityWithoutUsers(sessionDto);
+
+        if (sessionDto.getUsers() != null) {
+            Map<Long, User> usersById = userService.findAllById(new LinkedHashSet<>(sessionDto.getUsers())).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+            session.setUsers(sessionDto.getUsers().stream()
+                .distinct()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+        }
+
+        return session;
+    }
+
+    @Override
+    public Session toReferenceEntity(SessionDto sessionDto) {
+        if (sessionDto == null) {
+            return null;
+        }
+
+        Session session = toEntityWithoutUsers(sessionDto);
+
+        if (sessionDto.getUsers() != null) {
+            session.setUsers(sessionDto.getUsers().stream()
+                .distinct()
+                .map(userService::getReference)
+                .collect(Collectors.toList()));
+        }
+
+        return session;
+    }
+
+    private Session toEntityWithoutUsers(SessionDto sessionDto) {
         Session session = new Session();
         session.setId(sessionDto.getId());
         session.setName(sessionDto.getName());
         session.setDate(sessionDto.getDate());
         session.setDescription(sessionDto.getDescription());
+        session.setCapacity(sessionDto.getCapacity());
 
         if (sessionDto.getTeacher_id() != null) {
-            Teacher teacher = teacherService.findById(sessionDto.getTeacher_id());
-            session.setTeacher(teacher);
-        }
-
-        if (sessionDto.getUsers() != null) {
-            List<User> users = new ArrayList<>();
-            for (Long userId : sessionDto.getUsers()) {
-                User user = userService.findById(userId);
-                if (user != null) {
-                    users.add(user);
-                }
-            }
-            session.setUsers(users);
+            session.setTeacher(teacherService.getReference(sessionDto.getTeacher_id()));
         }
 
         return session;
@@ -0,0 +1,167 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Data source whose connections time every statement execution and count the rows read from
+ * its result sets, reporting both to {@link QueryMetrics}. Unwrapping still reaches the pool,
+ * so pool metrics and health checks are unaffected.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private final Supplier<QueryMetrics> metrics;
+
+    public InstrumentedDataSource(DataSource target, Supplier<QueryMetrics> metrics) {
+        super(target);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        return wrap(Connection.class, new ConnectionHandler(connection));
+    }
+
+    private static <T> T wrap(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /** Base handler: identity semantics for the proxy itself, everything else to the target. */
+    private abstract static class Handler implements InvocationHandler {
+        final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return target.toString();
+                default:
+                    return handle(method, args);
+            }
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private final class ConnectionHandler extends Handler {
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return wrap(Statement.class, new StatementHandler(result));
+                case "prepareStatement":
+                    return wrap(PreparedStatement.class, new StatementHandler(result));
+                case "prepareCall":
+                    return wrap(CallableStatement.class, new StatementHandler(result));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+        StatementHandler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String repository = QueryTracker.currentRepository();
+                long begin = System.nanoTime();
+                try {
+                    Object result = InstrumentedDataSource.invoke(target, method, args);
+                    return result instanceof ResultSet ? rows((ResultSet) result, repository) : result;
+                } finally {
+                    metrics.get().recordStatement(repository, System.nanoTime() - begin);
+                }
+            }
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            if (result instanceof ResultSet && ("getResultSet".equals(name) || "getGeneratedKeys".equals(name))) {
+                return rows((ResultSet) result, QueryTracker.currentRepository());
+            }
+            return result;
+        }
+
+        private ResultSet rows(ResultSet resultSet, String repository) {
+            return wrap(ResultSet.class, new ResultSetHandler(resultSet, repository));
+        }
+    }
+
+    /** Counts rows as they are read and reports them once, when the result set is exhausted or closed. */
+    private final class ResultSetHandler extends Handler {
+        private final String repository;
+
+        private long rows;
+
+        private boolean reported;
+
+        ResultSetHandler(ResultSet target, String repository) {
+            super(target);
+            this.repository = repository;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                report();
+            }
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            if ("next".equals(name)) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    report();
+                }
+            }
+            return result;
+        }
+
+        private void report() {
+            if (!reported) {
+                reported = true;
+                metrics.get().recordRows(repository, rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import com.openclassrooms.starterjwt.mapper.EntityMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every call made to a mapper bean as {@code mapper.time}, tagged with the mapper
+ * interface and method, e.g. {@code SessionMapper.toDto}. Calls a mapper makes to itself,
+ * such as a list mapping delegating to the single one, are part of the outer call.
+ */
+@Component
+public class MapperTimingPostProcessor implements BeanPostProcessor, MeterBinder {
+    private final TaggedTimer mappings = new TaggedTimer("mapper.time",
+            "Time spent mapping between entities and DTOs, by mapper method", "method");
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof EntityMapper)) {
+            return bean;
+        }
+
+        String mapper = mapperName(bean.getClass());
+        Map<Method, String> labels = new ConcurrentHashMap<>();
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            String label = labels.computeIfAbsent(invocation.getMethod(), method -> mapper + "." + method.getName());
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                mappings.recordSince(label, start);
+            }
+        });
+        return proxyFactory.getProxy();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        mappings.bindTo(registry);
+    }
+
+    /** The mapper interface the bean implements, e.g. SessionMapper for SessionMapperImpl. */
+    private static String mapperName(Class<?> type) {
+        for (Class<?> candidate = type; candidate != null; candidate = candidate.getSuperclass()) {
+            for (Class<?> implemented : candidate.getInterfaces()) {
+                if (EntityMapper.class.isAssignableFrom(implemented) && implemented != EntityMapper.class) {
+                    return implemented.getSimpleName();
+                }
+            }
+        }
+        return type.getSimpleName();
+    }
+}
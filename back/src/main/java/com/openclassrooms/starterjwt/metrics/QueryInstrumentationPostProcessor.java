@@ -0,0 +1,69 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wires the JDBC instrumentation in: data sources are wrapped in an
+ * {@link InstrumentedDataSource}, and every Spring Data repository labels the statements it
+ * issues with its interface and method name, e.g. {@code SessionRepository.findDtoPage}.
+ */
+@Component
+public class QueryInstrumentationPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<QueryMetrics> metricsProvider;
+
+    private volatile QueryMetrics metrics;
+
+    public QueryInstrumentationPostProcessor(ObjectProvider<QueryMetrics> metricsProvider) {
+        this.metricsProvider = metricsProvider;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, information) ->
+                            proxyFactory.addAdvice(labelling(information.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof InstrumentedDataSource)) {
+            return new InstrumentedDataSource((DataSource) bean, this::metrics);
+        }
+        return bean;
+    }
+
+    private static MethodInterceptor labelling(String repository) {
+        Map<Method, String> labels = new ConcurrentHashMap<>();
+        return invocation -> {
+            String label = labels.computeIfAbsent(invocation.getMethod(), method -> repository + "." + method.getName());
+            String previous = QueryTracker.enterRepository(label);
+            try {
+                return invocation.proceed();
+            } finally {
+                QueryTracker.exitRepository(previous);
+            }
+        };
+    }
+
+    /** Resolved on first use: the data source is created long before the meters are. */
+    private QueryMetrics metrics() {
+        QueryMetrics resolved = this.metrics;
+        if (resolved == null) {
+            resolved = this.metricsProvider.getObject();
+            this.metrics = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the JDBC instrumentation. Per statement, {@code db.statements} (a timer of JDBC
+ * execution time) and {@code db.rows} are tagged with the repository method that issued them.
+ * Per HTTP request, {@code db.request.statements}, {@code db.request.rows} and
+ * {@code db.request.time} are tagged with the controller method that served it, which is
+ * where an N+1 pattern shows up as a growing statement count.
+ */
+@Component
+public class QueryMetrics implements MeterBinder {
+    private final Map<String, Timer> statementTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> rowCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, RequestMeters> requestMeters = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    public void recordStatement(String repository, long nanos) {
+        QueryStats stats = QueryTracker.current();
+        if (stats != null) {
+            stats.recordStatement(nanos);
+        }
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            statementTimers.computeIfAbsent(repository, key -> Timer.builder("db.statements")
+                    .description("JDBC statements executed, by repository method")
+                    .tag("repository", key)
+                    .register(registry))
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordRows(String repository, long rows) {
+        QueryStats stats = QueryTracker.current();
+        if (stats != null) {
+            stats.recordRows(rows);
+        }
+        MeterRegistry registry = this.registry;
+        if (registry != null && rows > 0) {
+            rowCounters.computeIfAbsent(repository, key -> Counter.builder("db.rows")
+                    .description("Rows read from JDBC result sets, by repository method")
+                    .tag("repository", key)
+                    .register(registry))
+                    .increment(rows);
+        }
+    }
+
+    public void recordRequest(String handler, QueryStats stats) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            RequestMeters meters = requestMeters.computeIfAbsent(handler, key -> new RequestMeters(registry, key));
+            meters.statements.record(stats.getStatements());
+            meters.rows.record(stats.getRows());
+            meters.time.record(stats.getNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private static final class RequestMeters {
+        private final DistributionSummary statements;
+
+        private final DistributionSummary rows;
+
+        private final Timer time;
+
+        private RequestMeters(MeterRegistry registry, String handler) {
+            this.statements = DistributionSummary.builder("db.request.statements")
+                    .description("JDBC statements per HTTP request, by controller method")
+                    .tag("handler", handler)
+                    .register(registry);
+            this.rows = DistributionSummary.builder("db.request.rows")
+                    .description("Rows read per HTTP request, by controller method")
+                    .tag("handler", handler)
+                    .register(registry);
+            this.time = Timer.builder("db.request.time")
+                    .description("JDBC time per HTTP request, by controller method")
+                    .tag("handler", handler)
+                    .register(registry);
+        }
+    }
+}
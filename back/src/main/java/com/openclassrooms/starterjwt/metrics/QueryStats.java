@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC work done on behalf of one HTTP request: statements executed, rows read from their
+ * result sets and time spent executing them. Batches count as one statement.
+ */
+public class QueryStats {
+    /** Request attribute holding the stats of the current request. */
+    public static final String REQUEST_ATTRIBUTE = QueryStats.class.getName();
+
+    private int statements;
+
+    private long rows;
+
+    private long nanos;
+
+    synchronized void recordStatement(long nanos) {
+        this.statements++;
+        this.nanos += nanos;
+    }
+
+    synchronized void recordRows(long rows) {
+        this.rows += rows;
+    }
+
+    public synchronized int getStatements() {
+        return statements;
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public synchronized long getNanos() {
+        return nanos;
+    }
+
+    public double getMillis() {
+        return getNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d statements, %d rows, %.3fms", getStatements(), getRows(), getMillis());
+    }
+}
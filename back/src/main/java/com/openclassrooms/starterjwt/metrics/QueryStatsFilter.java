@@ -0,0 +1,89 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Collects the JDBC work of each request, security filters included, and records it against
+ * the controller method that served it. With {@code oc.app.queryStatsHeader} on (the dev
+ * profile), the totals are also returned in {@code X-Query-*} headers, written just before the
+ * response commits. The stats stay on the request under {@link QueryStats#REQUEST_ATTRIBUTE}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryStatsFilter extends OncePerRequestFilter {
+    public static final String COUNT_HEADER = "X-Query-Count";
+
+    public static final String ROWS_HEADER = "X-Query-Rows";
+
+    public static final String TIME_HEADER = "X-Query-Time-Ms";
+
+    private final QueryMetrics queryMetrics;
+
+    private final boolean header;
+
+    public QueryStatsFilter(QueryMetrics queryMetrics, @Value("${oc.app.queryStatsHeader}") boolean header) {
+        this.queryMetrics = queryMetrics;
+        this.header = header;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryTracker.begin();
+        request.setAttribute(QueryStats.REQUEST_ATTRIBUTE, stats);
+        HttpServletResponse target = this.header ? new StatsHeaderResponse(response, stats) : response;
+        try {
+            filterChain.doFilter(request, target);
+        } finally {
+            QueryTracker.end();
+            if (this.header && !response.isCommitted()) {
+                writeHeaders(response, stats);
+            }
+            this.queryMetrics.recordRequest(handlerName(request), stats);
+        }
+    }
+
+    static String handlerName(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return QueryTracker.NONE;
+    }
+
+    private static void writeHeaders(HttpServletResponse response, QueryStats stats) {
+        response.setHeader(COUNT_HEADER, String.valueOf(stats.getStatements()));
+        response.setHeader(ROWS_HEADER, String.valueOf(stats.getRows()));
+        response.setHeader(TIME_HEADER, String.format(Locale.ROOT, "%.3f", stats.getMillis()));
+    }
+
+    /** Adds the headers when the body forces an early commit, while they can still be set. */
+    private static final class StatsHeaderResponse extends OnCommittedResponseWrapper {
+        private final QueryStats stats;
+
+        private StatsHeaderResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeaders((HttpServletResponse) getResponse(), this.stats);
+        }
+    }
+}
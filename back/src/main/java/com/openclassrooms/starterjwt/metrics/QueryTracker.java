@@ -0,0 +1,55 @@
+package com.openclassrooms.starterjwt.metrics;
+
+/**
+ * Thread-bound context of the JDBC instrumentation: the stats of the request being served,
+ * if any, and the repository method currently running. Statements issued outside a repository
+ * call, such as lazy loads from a mapper, are labelled {@link #NONE}.
+ */
+public final class QueryTracker {
+    public static final String NONE = "none";
+
+    private static final ThreadLocal<QueryStats> STATS = new ThreadLocal<>();
+
+    private static final ThreadLocal<String> REPOSITORY = new ThreadLocal<>();
+
+    private QueryTracker() {
+    }
+
+    /** Starts collecting into fresh stats for this thread and returns them. */
+    public static QueryStats begin() {
+        QueryStats stats = new QueryStats();
+        STATS.set(stats);
+        return stats;
+    }
+
+    public static void end() {
+        STATS.remove();
+    }
+
+    public static QueryStats current() {
+        return STATS.get();
+    }
+
+    public static String currentRepository() {
+        String repository = REPOSITORY.get();
+        return repository == null ? NONE : repository;
+    }
+
+    /**
+     * Labels the statements that follow, unless an outer repository call already did; returns
+     * the previous label, to hand back to {@link #exitRepository}.
+     */
+    static String enterRepository(String repository) {
+        String previous = REPOSITORY.get();
+        if (previous == null) {
+            REPOSITORY.set(repository);
+        }
+        return previous;
+    }
+
+    static void exitRepository(String previous) {
+        if (previous == null) {
+            REPOSITORY.remove();
+        }
+    }
+}
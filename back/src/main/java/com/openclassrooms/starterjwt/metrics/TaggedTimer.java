@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timer split by one tag, such as the outcome of a call. Each timer publishes a percentile
+ * histogram, so SLO percentiles can be computed across instances from the Prometheus buckets.
+ * Recording before {@link #bindTo} is a no-op, which keeps owners usable outside Spring.
+ */
+public class TaggedTimer {
+    private final String name;
+
+    private final String description;
+
+    private final String tagKey;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    public TaggedTimer(String name, String description, String tagKey) {
+        this.name = name;
+        this.description = description;
+        this.tagKey = tagKey;
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void record(String tagValue, long nanos) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            timers.computeIfAbsent(tagValue, value -> Timer.builder(name)
+                    .description(description)
+                    .tag(tagKey, value)
+                    .publishPercentileHistogram()
+                    .register(registry))
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordSince(String tagValue, long startNanos) {
+        record(tagValue, System.nanoTime() - startNanos);
+    }
+}
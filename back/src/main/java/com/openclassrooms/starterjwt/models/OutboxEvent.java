@@ -0,0 +1,54 @@
+package com.openclassrooms.starterjwt.models;
+
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import lombok.*;
+import lombok.experimental.Accessors;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+
+/**
+ * A session event written in the same transaction as the change it describes, and relayed to
+ * the sinks afterwards. {@code eventKey} is unique per event and travels with it, so consumers
+ * can drop the duplicates that at-least-once delivery may produce.
+ */
+@Entity
+@Table(name = "OUTBOX_EVENTS", indexes = {
+        @Index(columnList = "published_at, id")
+})
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"id"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "event_key", length = 36, nullable = false, unique = true)
+    private String eventKey;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private SessionEvent.Type type;
+
+    @NotNull
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @NotNull
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "published_at")
+    private Instant publishedAt;
+}
@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -17,6 +18,15 @@ import java.util.List;
 
 @Entity
 @Table(name = "SESSIONS")
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Session.GRAPH_SUMMARY, attributeNodes = {
+                @NamedAttributeNode("teacher")
+        }),
+        @NamedEntityGraph(name = Session.GRAPH_FULL, attributeNodes = {
+                @NamedAttributeNode("teacher"),
+                @NamedAttributeNode("users")
+        })
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @Accessors(chain = true)
@@ -26,8 +36,16 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 public class Session {
+    /** Session columns and teacher only, participants stay unloaded. */
+    public static final String GRAPH_SUMMARY = "Session.summary";
+
+    /** Session, teacher and every participating user. */
+    public static final String GRAPH_FULL = "Session.full";
+
+    /** Pooled sequence, so inserts can be batched; one sequence call hands out 50 ids. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sessions_seq")
+    @SequenceGenerator(name = "sessions_seq", sequenceName = "SESSIONS_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -41,15 +59,20 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
-    @OneToOne
+    @Min(1)
+    private Integer capacity;
+
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            inverseJoinColumns = @JoinColumn( name = "user_id" ),
+            uniqueConstraints = @UniqueConstraint(columnNames = { "session_id", "user_id" }) )
+    @ToString.Exclude
     private List<User> users;
 
     @CreatedDate
@@ -51,6 +51,10 @@ public class User {
   @NonNull
   private boolean admin;
 
+  /** Bumped to revoke every token issued so far; tokens carry the version they were issued with. */
+  @Column(name = "token_version", nullable = false)
+  private int tokenVersion;
+
   @CreatedDate
   @Column(name = "created_at", updatable = false)
   private LocalDateTime createdAt;
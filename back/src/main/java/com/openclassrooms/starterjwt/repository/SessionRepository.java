@@ -1,9 +1,99 @@
 package com.openclassrooms.starterjwt.repository;
 
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface SessionRepository  extends JpaRepository<Session, Long> {
+    /** Keyset position plus optional date range and teacher, ordered by (date, id). */
+    String PAGE_FILTER = " where (:afterDate is null or s.date > :afterDate or (s.date = :afterDate and s.id > :afterId))"
+            + " and (:from is null or s.date >= :from)"
+            + " and (:to is null or s.date < :to)"
+            + " and (:teacherId is null or s.teacher.id = :teacherId)"
+            + " order by s.date asc, s.id asc";
+
+    /** Session columns read straight into a SessionDto, without loading the entity or its teacher. */
+    String DTO_SELECT = "select new com.openclassrooms.starterjwt.dto.SessionDto("
+            + "s.id, s.name, s.date, s.teacher.id, s.description, s.capacity, s.createdAt, s.updatedAt)"
+            + " from Session s";
+
+    @Override
+    @EntityGraph(Session.GRAPH_SUMMARY)
+    List<Session> findAll();
+
+    @Override
+    @EntityGraph(Session.GRAPH_SUMMARY)
+    Optional<Session> findById(Long id);
+
+    @EntityGraph(Session.GRAPH_FULL)
+    Optional<Session> findWithUsersById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Session s where s.id = :id")
+    Optional<Session> findForBookingById(@Param("id") Long id);
+
+    @EntityGraph(Session.GRAPH_SUMMARY)
+    @Query("select s from Session s" + PAGE_FILTER)
+    Slice<Session> findPage(@Param("afterDate") Date afterDate,
+                            @Param("afterId") Long afterId,
+                            @Param("from") Date from,
+                            @Param("to") Date to,
+                            @Param("teacherId") Long teacherId,
+                            Pageable pageable);
+
+    @Query(DTO_SELECT + PAGE_FILTER)
+    Slice<SessionDto> findDtoPage(@Param("afterDate") Date afterDate,
+                                  @Param("afterId") Long afterId,
+                                  @Param("from") Date from,
+                                  @Param("to") Date to,
+                                  @Param("teacherId") Long teacherId,
+                                  Pageable pageable);
+
+    @Query(DTO_SELECT + " where s.id = :id")
+    Optional<SessionDto> findDtoById(@Param("id") Long id);
+
+    @Query("select new com.openclassrooms.starterjwt.dto.ResourceVersion(s.id, s.updatedAt) from Session s where s.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    @Query("select new com.openclassrooms.starterjwt.dto.ResourceVersion(count(s), max(s.updatedAt)) from Session s")
+    ResourceVersion findCollectionVersion();
+
+    /** Bumps updatedAt after a change the entity does not see, such as a new participant. */
+    @Modifying
+    @Query("update Session s set s.updatedAt = :now where s.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query(value = "select session_id, user_id from PARTICIPATE where session_id in (:sessionIds)", nativeQuery = true)
+    List<Object[]> findParticipantIds(@Param("sessionIds") Collection<Long> sessionIds);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    long countParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId", nativeQuery = true)
+    long countParticipants(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Query(value = "insert into PARTICIPATE (session_id, user_id) values (:sessionId, :userId)", nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "delete from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
 }
@@ -1,10 +1,16 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
 import com.openclassrooms.starterjwt.models.User;
 
 @Repository
@@ -12,4 +18,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  @Query("select u.id from User u where u.id in :ids")
+  Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  @Query("select new com.openclassrooms.starterjwt.dto.ResourceVersion(u.id, u.updatedAt) from User u where u.id = :id")
+  Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+  @Query("select u.tokenVersion from User u where u.id = :id")
+  Optional<Integer> findTokenVersionById(@Param("id") Long id);
+
+  @Modifying
+  @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.id = :id")
+  int incrementTokenVersion(@Param("id") Long id);
+
+  @Modifying
+  @Query("update User u set u.password = :password where u.id = :id")
+  int updatePassword(@Param("id") Long id, @Param("password") String password);
 }
@@ -0,0 +1,134 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.metrics.TaggedTimer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * BCrypt encoder whose hashing runs on a small dedicated pool instead of on whatever thread
+ * calls it. At most {@code threads} hashes are computed at once, at most {@code queueCapacity}
+ * more may wait, and anything beyond that is refused straight away with a 503 rather than
+ * piling up CPU work behind the request threads.
+ *
+ * {@link #upgradeEncoding(String)} reports hashes made with a lower cost than the configured
+ * one, so a successful login re-hashes the password at the new cost.
+ *
+ * The time each hash takes is published as {@code auth.password.hash}, tagged encode or matches.
+ */
+public class PooledBCryptPasswordEncoder implements PasswordEncoder, MeterBinder, AutoCloseable {
+  private final BCryptPasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final TaggedTimer hashing = new TaggedTimer("auth.password.hash",
+      "BCrypt time on the hashing pool, queueing excluded", "operation");
+
+  private Counter rejected;
+
+  public PooledBCryptPasswordEncoder(int strength, int threads, int queueCapacity) {
+    this.delegate = new BCryptPasswordEncoder(strength);
+    AtomicInteger count = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return submit(() -> {
+      long start = System.nanoTime();
+      try {
+        return delegate.encode(rawPassword);
+      } finally {
+        hashing.recordSince("encode", start);
+      }
+    });
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return submit(() -> {
+      long start = System.nanoTime();
+      try {
+        return delegate.matches(rawPassword, encodedPassword);
+      } finally {
+        hashing.recordSince("matches", start);
+      }
+    });
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("auth.password.queue.depth", executor, e -> e.getQueue().size())
+        .description("Password hashing requests waiting for a thread")
+        .register(registry);
+    Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+        .description("Password hashes being computed")
+        .register(registry);
+    rejected = Counter.builder("auth.password.rejected")
+        .description("Password hashing requests refused because the queue was full")
+        .register(registry);
+    hashing.bindTo(registry);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private <T> T submit(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      if (rejected != null) {
+        rejected.increment();
+      }
+      throw new ServiceUnavailableException();
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts authentication failures by reason and logs one line per reason every
+ * {@code oc.app.authFailureLogMs}, as {@code auth_failures reason=expired count=42 interval_ms=60000}.
+ * Recording a failure only bumps a counter, so a client retrying with a stale token, or an attack,
+ * costs no log I/O on the request thread and log volume stays flat however much traffic it sends.
+ *
+ * Unexpected errors still log their stack trace, but only the first one of each interval.
+ */
+@Component
+public class AuthFailureLog {
+  private static final Logger logger = LoggerFactory.getLogger(AuthFailureLog.class);
+
+  private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean errorLogged = new AtomicBoolean();
+
+  private volatile long intervalStart = System.currentTimeMillis();
+
+  public void record(String reason) {
+    counts.computeIfAbsent(reason, key -> new LongAdder()).increment();
+  }
+
+  /**
+   * Records an unexpected failure, logging its stack trace if it is the first of the interval.
+   */
+  public void record(String reason, Throwable cause) {
+    record(reason);
+    if (errorLogged.compareAndSet(false, true)) {
+      logger.error("auth_failure reason={} first_of_interval=true", reason, cause);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.authFailureLogMs}", initialDelayString = "${oc.app.authFailureLogMs}")
+  public void report() {
+    flush();
+  }
+
+  /**
+   * Logs and resets the counts gathered since the previous flush. Reasons without failures
+   * are skipped, so a quiet interval logs nothing.
+   *
+   * @return the count logged for each reason
+   */
+  public Map<String, Long> flush() {
+    long now = System.currentTimeMillis();
+    long interval = now - intervalStart;
+    intervalStart = now;
+    errorLogged.set(false);
+
+    Map<String, Long> flushed = new LinkedHashMap<>();
+    counts.forEach((reason, count) -> {
+      long sum = count.sumThenReset();
+      if (sum > 0) {
+        flushed.put(reason, sum);
+        logger.warn("auth_failures reason={} count={} interval_ms={}", reason, sum, interval);
+      }
+    });
+    return flushed;
+  }
+}
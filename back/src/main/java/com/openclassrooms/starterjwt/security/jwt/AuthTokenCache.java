@@ -0,0 +1,85 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+/**
+ * Remembers the principal resolved for an already verified token, so repeated requests with
+ * the same token skip signature verification and the user lookup. An entry never outlives
+ * its token, nor the configured TTL, whichever comes first.
+ */
+@Component
+public class AuthTokenCache {
+  private final Cache<String, Entry> cache;
+
+  private final long ttlMs;
+
+  public AuthTokenCache(@Value("${oc.app.authCacheMaxSize}") long maxSize,
+      @Value("${oc.app.authCacheTtlMs}") long ttlMs) {
+    this.ttlMs = ttlMs;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new Expiry<String, Entry>() {
+          @Override
+          public long expireAfterCreate(String token, Entry entry, long currentTime) {
+            return entry.remainingNanos();
+          }
+
+          @Override
+          public long expireAfterUpdate(String token, Entry entry, long currentTime, long currentDuration) {
+            return entry.remainingNanos();
+          }
+
+          @Override
+          public long expireAfterRead(String token, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .build();
+  }
+
+  public UserDetailsImpl get(String token) {
+    Entry entry = cache.getIfPresent(token);
+    return entry != null ? entry.userDetails : null;
+  }
+
+  public void put(String token, UserDetailsImpl userDetails, Date tokenExpiration) {
+    long expiresAt = System.currentTimeMillis() + ttlMs;
+    if (tokenExpiration != null) {
+      expiresAt = Math.min(expiresAt, tokenExpiration.getTime());
+    }
+    cache.put(token, new Entry(userDetails, expiresAt));
+  }
+
+  public void evictUser(Long userId) {
+    cache.asMap().values().removeIf(entry -> Objects.equals(entry.userDetails.getId(), userId));
+  }
+
+  public void evictAll() {
+    cache.invalidateAll();
+  }
+
+  private static final class Entry {
+    private final UserDetailsImpl userDetails;
+
+    private final long expiresAt;
+
+    private Entry(UserDetailsImpl userDetails, long expiresAt) {
+      this.userDetails = userDetails;
+      this.expiresAt = expiresAt;
+    }
+
+    private long remainingNanos() {
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt - System.currentTimeMillis()));
+    }
+  }
+}
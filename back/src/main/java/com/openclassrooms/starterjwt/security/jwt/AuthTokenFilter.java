@@ -7,8 +7,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,26 +15,68 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.metrics.TaggedTimer;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Authenticates requests from their bearer token, or the session event stream from a
+ * {@link StreamTicketRegistry} ticket. The time spent doing so, downstream filters excluded, is
+ * published as {@code auth.filter}, tagged anonymous (no token), cached, verified, ticket,
+ * rejected (invalid or revoked token or ticket) or error. Failures go to the
+ * {@link AuthFailureLog}.
+ */
 public class AuthTokenFilter extends OncePerRequestFilter {
+  /** The only path that accepts a ticket instead of a bearer token. */
+  public static final String STREAM_PATH = "/api/session/stream";
+
+  static final String TICKET_PARAMETER = "ticket";
+
   @Autowired
   private JwtUtils jwtUtils;
 
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
+  @Autowired
+  private AuthTokenCache authTokenCache;
+
+  @Autowired
+  private TokenRevocationRegistry tokenRevocationRegistry;
+
+  @Autowired
+  private AuthFailureLog authFailureLog;
+
+  @Autowired
+  private StreamTicketRegistry streamTicketRegistry;
+
+  private final TaggedTimer authentications = new TaggedTimer("auth.filter",
+      "Time spent authenticating a request from its token, by outcome", "outcome");
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
+    long start = System.nanoTime();
+    String outcome = "anonymous";
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      UserDetails userDetails = null;
+      if (jwt != null) {
+        userDetails = authTokenCache.get(jwt);
+        if (userDetails != null) {
+          outcome = "cached";
+        } else {
+          userDetails = resolveUser(jwt);
+          outcome = userDetails != null ? "verified" : "rejected";
+        }
+      } else if (isStreamRequest(request) && request.getParameter(TICKET_PARAMETER) != null) {
+        userDetails = redeemTicket(request.getParameter(TICKET_PARAMETER));
+        outcome = userDetails != null ? "ticket" : "rejected";
+      }
+      if (userDetails != null) {
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -47,12 +87,75 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         SecurityContextHolder.getContext().setAuthentication(authentication);
       }
     } catch (Exception e) {
-      logger.error("Cannot set user authentication: {}", e);
+      outcome = "error";
+      authFailureLog.record(outcome, e);
+    } finally {
+      authentications.recordSince(outcome, start);
     }
 
     filterChain.doFilter(request, response);
   }
 
+  /**
+   * Injected rather than bound as a MeterBinder: the filter is created by the security
+   * configuration, which the registry must not depend on.
+   */
+  @Autowired
+  public void setMeterRegistry(MeterRegistry registry) {
+    authentications.bindTo(registry);
+  }
+
+  /**
+   * Verifies a token missing from the cache and loads its principal, or returns null when the
+   * token is invalid or revoked. The revocation check reads the user's token version, so a
+   * token revoked on another node is refused here once its cache entry expires.
+   */
+  private UserDetails resolveUser(String jwt) {
+    Claims claims = jwtUtils.parseJwtToken(jwt);
+    if (claims == null) {
+      return null;
+    }
+
+    UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+    boolean revoked;
+    if (userDetails == null) {
+      // The user row is loaded anyway, so its version is compared without another query
+      userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+      revoked = userDetails.getTokenVersion() != jwtUtils.getTokenVersion(claims);
+    } else {
+      revoked = tokenRevocationRegistry.isRevoked(userDetails.getId(), userDetails.getTokenVersion());
+    }
+    if (revoked) {
+      authFailureLog.record("revoked");
+      return null;
+    }
+
+    authTokenCache.put(jwt, userDetails, claims.getExpiration());
+    return userDetails;
+  }
+
+  /**
+   * Consumes a stream ticket, refusing it when the user's tokens were revoked after it was
+   * issued.
+   */
+  private UserDetails redeemTicket(String ticket) {
+    UserDetailsImpl userDetails = streamTicketRegistry.redeem(ticket);
+    if (userDetails == null) {
+      authFailureLog.record("bad_ticket");
+      return null;
+    }
+    if (tokenRevocationRegistry.isRevoked(userDetails.getId(), userDetails.getTokenVersion())) {
+      authFailureLog.record("revoked");
+      return null;
+    }
+    return userDetails;
+  }
+
+  private boolean isStreamRequest(HttpServletRequest request) {
+    return "GET".equals(request.getMethod())
+        && STREAM_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
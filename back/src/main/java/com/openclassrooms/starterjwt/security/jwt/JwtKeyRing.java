@@ -0,0 +1,177 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.impl.TextCodec;
+
+/**
+ * Holds the keys used to sign and verify tokens.
+ *
+ * With HS512 the shared oc.app.jwtSecret is used, as before. With RS256 or ES256 the keys are
+ * read from oc.app.jwtKeyDir: every {@code <kid>.pub.pem} (X.509) is accepted for verification
+ * and the {@code <kid>.key.pem} (PKCS#8) whose kid sorts last signs new tokens. Nodes that only
+ * verify tokens need the public files alone. The directory is re-read periodically, so dropping
+ * in a new key pair or removing a retired public key takes effect without a restart.
+ *
+ * A single parser is built once and resolves the verification key from the token's kid header.
+ */
+@Component
+public class JwtKeyRing {
+  private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+  private static final String PUBLIC_SUFFIX = ".pub.pem";
+
+  private static final String PRIVATE_SUFFIX = ".key.pem";
+
+  private final SignatureAlgorithm algorithm;
+
+  private final Key secretKey;
+
+  private final Path keyDir;
+
+  private final JwtParser parser;
+
+  private volatile Keys keys = new Keys(null, null, Collections.emptyMap());
+
+  public JwtKeyRing(@Value("${oc.app.jwtSecret}") String jwtSecret,
+      @Value("${oc.app.jwtAlgorithm}") String algorithm,
+      @Value("${oc.app.jwtKeyDir}") String keyDir) {
+    this.algorithm = SignatureAlgorithm.forName(algorithm);
+    this.secretKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+    this.keyDir = keyDir.isEmpty() ? null : Paths.get(keyDir);
+    this.parser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+      @Override
+      public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return verificationKey(header.getKeyId());
+      }
+    });
+
+    if (this.algorithm != SignatureAlgorithm.HS512 && !this.algorithm.isRsa() && !this.algorithm.isEllipticCurve()) {
+      throw new IllegalStateException("Unsupported JWT algorithm: " + algorithm);
+    }
+    if (this.algorithm != SignatureAlgorithm.HS512 && this.keyDir == null) {
+      throw new IllegalStateException("oc.app.jwtKeyDir is required for " + algorithm);
+    }
+    reload();
+  }
+
+  public JwtParser parser() {
+    return parser;
+  }
+
+  public JwtBuilder sign(JwtBuilder builder) {
+    if (algorithm == SignatureAlgorithm.HS512) {
+      return builder.signWith(algorithm, secretKey);
+    }
+
+    Keys current = keys;
+    if (current.signingKey == null) {
+      throw new IllegalStateException("No private key available in " + keyDir);
+    }
+    return builder.setHeaderParam(JwsHeader.KEY_ID, current.activeKid).signWith(algorithm, current.signingKey);
+  }
+
+  public String getActiveKid() {
+    return keys.activeKid;
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.jwtKeyReloadMs}", initialDelayString = "${oc.app.jwtKeyReloadMs}")
+  public void reload() {
+    if (algorithm == SignatureAlgorithm.HS512) {
+      return;
+    }
+
+    Map<String, PublicKey> publicKeys = new HashMap<>();
+    TreeMap<String, PrivateKey> privateKeys = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(keyDir, "*.pem")) {
+      KeyFactory keyFactory = KeyFactory.getInstance(algorithm.isRsa() ? "RSA" : "EC");
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(PUBLIC_SUFFIX)) {
+          publicKeys.put(kidOf(name, PUBLIC_SUFFIX), keyFactory.generatePublic(new X509EncodedKeySpec(readPem(file))));
+        } else if (name.endsWith(PRIVATE_SUFFIX)) {
+          privateKeys.put(kidOf(name, PRIVATE_SUFFIX), keyFactory.generatePrivate(new PKCS8EncodedKeySpec(readPem(file))));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot load JWT keys from " + keyDir, e);
+    }
+
+    Map.Entry<String, PrivateKey> active = privateKeys.lastEntry();
+    keys = new Keys(active != null ? active.getKey() : null, active != null ? active.getValue() : null, publicKeys);
+    logger.debug("Loaded {} verification key(s), signing with {}", publicKeys.size(), keys.activeKid);
+  }
+
+  private Key verificationKey(String kid) {
+    if (algorithm == SignatureAlgorithm.HS512) {
+      return secretKey;
+    }
+
+    Key key = kid != null ? keys.publicKeys.get(kid) : null;
+    if (key == null) {
+      throw new SignatureException("Unknown key id: " + kid);
+    }
+    return key;
+  }
+
+  private static String kidOf(String fileName, String suffix) {
+    return fileName.substring(0, fileName.length() - suffix.length());
+  }
+
+  private static byte[] readPem(Path file) throws IOException {
+    String pem = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII)
+        .replaceAll("-----[A-Z ]+-----", "")
+        .replaceAll("\\s", "");
+    return Base64.getDecoder().decode(pem);
+  }
+
+  private static final class Keys {
+    private final String activeKid;
+
+    private final PrivateKey signingKey;
+
+    private final Map<String, PublicKey> publicKeys;
+
+    private Keys(String activeKid, PrivateKey signingKey, Map<String, PublicKey> publicKeys) {
+      this.activeKid = activeKid;
+      this.signingKey = signingKey;
+      this.publicKeys = publicKeys;
+    }
+  }
+}
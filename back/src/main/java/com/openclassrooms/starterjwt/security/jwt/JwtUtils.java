@@ -2,58 +2,139 @@ package com.openclassrooms.starterjwt.security.jwt;
 
 import java.util.Date;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import com.openclassrooms.starterjwt.metrics.TaggedTimer;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
+/**
+ * Issues and verifies access tokens. Every verification is timed as {@code auth.jwt.validation},
+ * tagged with its outcome: valid, expired, bad_signature, malformed, unsupported or empty.
+ * Failures are counted in the {@link AuthFailureLog} rather than logged one by one.
+ */
 @Component
-public class JwtUtils {
-  private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
+public class JwtUtils implements MeterBinder {
+  private final JwtKeyRing keyRing;
 
-  @Value("${oc.app.jwtSecret}")
-  private String jwtSecret;
+  private final AuthFailureLog authFailureLog;
+
+  private final TaggedTimer validations = new TaggedTimer("auth.jwt.validation",
+      "Access token verifications, by outcome", "outcome");
 
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
-  public String generateJwtToken(Authentication authentication) {
+  @Value("${oc.app.jwtStatelessPrincipal}")
+  private boolean statelessPrincipal;
+
+  static final String CLAIM_ID = "id";
+
+  static final String CLAIM_FIRST_NAME = "firstName";
 
-    UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+  static final String CLAIM_LAST_NAME = "lastName";
 
-    return Jwts.builder()
+  static final String CLAIM_ADMIN = "admin";
+
+  static final String CLAIM_TOKEN_VERSION = "ver";
+
+  public JwtUtils(JwtKeyRing keyRing, AuthFailureLog authFailureLog) {
+    this.keyRing = keyRing;
+    this.authFailureLog = authFailureLog;
+  }
+
+  public String generateJwtToken(Authentication authentication) {
+    return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+  }
+
+  public String generateJwtToken(UserDetailsImpl userPrincipal) {
+    JwtBuilder builder = Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
-        .compact();
+        .claim(CLAIM_TOKEN_VERSION, userPrincipal.getTokenVersion());
+
+    if (statelessPrincipal) {
+      builder.claim(CLAIM_ID, userPrincipal.getId())
+          .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+          .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+          .claim(CLAIM_ADMIN, userPrincipal.isAdmin());
+    }
+
+    return keyRing.sign(builder).compact();
+  }
+
+  /**
+   * Rebuilds the principal from the claims of a verified token, or returns null when stateless
+   * principals are disabled or the token was issued without them.
+   */
+  public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+    if (!statelessPrincipal || claims.get(CLAIM_ID) == null) {
+      return null;
+    }
+
+    return UserDetailsImpl
+        .builder()
+        .id(claims.get(CLAIM_ID, Number.class).longValue())
+        .username(claims.getSubject())
+        .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+        .lastName(claims.get(CLAIM_LAST_NAME, String.class))
+        .admin(claims.get(CLAIM_ADMIN, Boolean.class))
+        .tokenVersion(getTokenVersion(claims))
+        .build();
+  }
+
+  /**
+   * The token version of the user when the token was issued; 0 for tokens issued before
+   * versions existed, which is also the version of a user never revoked.
+   */
+  public int getTokenVersion(Claims claims) {
+    Number version = claims.get(CLAIM_TOKEN_VERSION, Number.class);
+    return version != null ? version.intValue() : 0;
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    return keyRing.parser().parseClaimsJws(token).getBody().getSubject();
   }
 
   public boolean validateJwtToken(String authToken) {
+    return parseJwtToken(authToken) != null;
+  }
+
+  /**
+   * Verifies the token and returns its claims, or null when it is not valid.
+   */
+  public Claims parseJwtToken(String authToken) {
+    long start = System.nanoTime();
+    String outcome = "valid";
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      return keyRing.parser().parseClaimsJws(authToken).getBody();
     } catch (SignatureException e) {
-      logger.error("Invalid JWT signature: {}", e.getMessage());
+      outcome = "bad_signature";
     } catch (MalformedJwtException e) {
-      logger.error("Invalid JWT token: {}", e.getMessage());
+      outcome = "malformed";
     } catch (ExpiredJwtException e) {
-      logger.error("JWT token is expired: {}", e.getMessage());
+      outcome = "expired";
     } catch (UnsupportedJwtException e) {
-      logger.error("JWT token is unsupported: {}", e.getMessage());
+      outcome = "unsupported";
     } catch (IllegalArgumentException e) {
-      logger.error("JWT claims string is empty: {}", e.getMessage());
+      outcome = "empty";
+    } finally {
+      validations.recordSince(outcome, start);
     }
 
-    return false;
+    authFailureLog.record(outcome);
+
+    return null;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    validations.bindTo(registry);
   }
 }
@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+/**
+ * Issues and rotates refresh tokens. A refresh token is an opaque random value that can be
+ * exchanged exactly once for a new access token and a new refresh token; the row it was
+ * looked up by holds everything needed for the access token, so neither the password check
+ * nor a user lookup is involved; only the user's token version is read, to refuse tokens
+ * issued before a revocation.
+ */
+@Service
+public class RefreshTokenService {
+  private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+  private static final int TOKEN_BYTES = 32;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final RefreshTokenRepository refreshTokenRepository;
+
+  private final TokenRevocationRegistry tokenRevocationRegistry;
+
+  private final long refreshExpirationMs;
+
+  public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+      TokenRevocationRegistry tokenRevocationRegistry,
+      @Value("${oc.app.jwtRefreshExpirationMs}") long refreshExpirationMs) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.tokenRevocationRegistry = tokenRevocationRegistry;
+    this.refreshExpirationMs = refreshExpirationMs;
+  }
+
+  public String issue(UserDetailsImpl userDetails) {
+    byte[] bytes = new byte[TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    refreshTokenRepository.save(RefreshToken.builder()
+        .tokenHash(hash(token))
+        .userId(userDetails.getId())
+        .email(userDetails.getUsername())
+        .firstName(userDetails.getFirstName())
+        .lastName(userDetails.getLastName())
+        .admin(userDetails.isAdmin())
+        .tokenVersion(userDetails.getTokenVersion())
+        .expiresAt(Instant.now().plusMillis(refreshExpirationMs))
+        .build());
+    return token;
+  }
+
+  /**
+   * Consumes the given refresh token and issues its successor, or returns null when the token
+   * is unknown, expired, already used or belongs to a revoked user.
+   */
+  @Transactional
+  public Rotation rotate(String token) {
+    RefreshToken current = refreshTokenRepository.findByTokenHash(hash(token)).orElse(null);
+    // The delete count decides which of two concurrent refreshes with the same token wins.
+    if (current == null || refreshTokenRepository.deleteByIdReturningCount(current.getId()) == 0) {
+      return null;
+    }
+    if (current.getExpiresAt().isBefore(Instant.now())
+        || tokenRevocationRegistry.isRevoked(current.getUserId(), current.getTokenVersion())) {
+      return null;
+    }
+
+    UserDetailsImpl userDetails = UserDetailsImpl
+        .builder()
+        .id(current.getUserId())
+        .username(current.getEmail())
+        .firstName(current.getFirstName())
+        .lastName(current.getLastName())
+        .admin(current.isAdmin())
+        .tokenVersion(current.getTokenVersion())
+        .build();
+    return new Rotation(userDetails, issue(userDetails));
+  }
+
+  @Transactional
+  public void revokeUser(Long userId) {
+    refreshTokenRepository.deleteByUserId(userId);
+  }
+
+  @Transactional
+  @Scheduled(fixedDelayString = "${oc.app.jwtRefreshPurgeMs}", initialDelayString = "${oc.app.jwtRefreshPurgeMs}")
+  public void purgeExpired() {
+    int purged = refreshTokenRepository.deleteExpired(Instant.now());
+    logger.debug("Purged {} expired refresh token(s)", purged);
+  }
+
+  static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static final class Rotation {
+    private final UserDetailsImpl userDetails;
+
+    private final String refreshToken;
+
+    private Rotation(UserDetailsImpl userDetails, String refreshToken) {
+      this.userDetails = userDetails;
+      this.refreshToken = refreshToken;
+    }
+
+    public UserDetailsImpl getUserDetails() {
+      return userDetails;
+    }
+
+    public String getRefreshToken() {
+      return refreshToken;
+    }
+  }
+}
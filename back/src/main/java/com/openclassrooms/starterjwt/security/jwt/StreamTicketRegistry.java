@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+/**
+ * Short-lived, single-use tickets for the session event stream. EventSource cannot send an
+ * Authorization header, and putting the access token in the URL would leave it in access logs
+ * for its whole lifetime, so an authenticated client trades its token for a ticket and opens
+ * the stream with {@code ?ticket=}. A ticket is valid for {@code oc.app.streamTicketTtlMs}
+ * and is consumed by the first request that presents it.
+ */
+@Component
+public class StreamTicketRegistry {
+  private static final int TICKET_BYTES = 32;
+
+  private final SecureRandom random = new SecureRandom();
+
+  private final Cache<String, UserDetailsImpl> tickets;
+
+  public StreamTicketRegistry(@Value("${oc.app.streamTicketTtlMs}") long ttlMs,
+      @Value("${oc.app.authCacheMaxSize}") long maxSize) {
+    this.tickets = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  public String issue(UserDetailsImpl userDetails) {
+    byte[] bytes = new byte[TICKET_BYTES];
+    random.nextBytes(bytes);
+    String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    tickets.put(ticket, userDetails);
+    return ticket;
+  }
+
+  /**
+   * Returns the user the ticket was issued to and invalidates it, or null when the ticket is
+   * unknown, expired or already used.
+   */
+  public UserDetailsImpl redeem(String ticket) {
+    return tickets.asMap().remove(ticket);
+  }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+
+/**
+ * Decides whether a token was issued before its user's tokens were revoked. Every token carries
+ * the token version its user had when it was issued, and revoking bumps the version stored on
+ * the user row, so a revocation survives restarts and holds on every node. A deleted user has
+ * no version left, which refuses all of their tokens.
+ */
+@Component
+public class TokenRevocationRegistry {
+  private final UserRepository userRepository;
+
+  public TokenRevocationRegistry(UserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  /**
+   * Refuses every token issued to the user so far.
+   */
+  @Transactional
+  public void revokeUser(Long userId) {
+    userRepository.incrementTokenVersion(userId);
+  }
+
+  public boolean isRevoked(Long userId, int tokenVersion) {
+    return userRepository.findTokenVersionById(userId)
+        .map(current -> current != tokenVersion)
+        .orElse(true);
+  }
+}
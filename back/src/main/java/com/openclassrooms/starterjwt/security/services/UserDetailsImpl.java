@@ -1,10 +1,13 @@
 package com.openclassrooms.starterjwt.security.services;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -19,6 +22,13 @@ import lombok.Getter;
 public class UserDetailsImpl implements UserDetails {
   private static final long serialVersionUID = 1L;
 
+  private static final GrantedAuthority ROLE_USER = new SimpleGrantedAuthority("ROLE_USER");
+
+  private static final List<GrantedAuthority> USER_AUTHORITIES = Collections.singletonList(ROLE_USER);
+
+  private static final List<GrantedAuthority> ADMIN_AUTHORITIES = Collections.unmodifiableList(
+      Arrays.asList(ROLE_USER, new SimpleGrantedAuthority("ROLE_ADMIN")));
+
   private Long id;
 
   private String username;
@@ -29,11 +39,18 @@ public class UserDetailsImpl implements UserDetails {
 
   private Boolean admin;
 
+  private int tokenVersion;
+
   @JsonIgnore
   private String password;  
   
-  public Collection<? extends GrantedAuthority> getAuthorities() {        
-      return new HashSet<GrantedAuthority>();
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return isAdmin() ? ADMIN_AUTHORITIES : USER_AUTHORITIES;
+  }
+
+  @JsonIgnore
+  public boolean isAdmin() {
+    return Boolean.TRUE.equals(admin);
   }
 
   @Override
@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands relayed events to in-process listeners, such as the session stream, as Spring
+ * application events.
+ */
+@Component
+public class ApplicationEventSink implements SessionEventSink {
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ApplicationEventSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<SessionEvent> events) {
+        for (SessionEvent event : events) {
+            this.eventPublisher.publishEvent(event);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends relayed events to oc.app.outboxFile as JSON lines, one batch per write. Only enabled
+ * when the property is set.
+ */
+@Component
+@ConditionalOnExpression("!'${oc.app.outboxFile}'.isEmpty()")
+public class FileSessionEventSink implements SessionEventSink {
+    private final ObjectMapper objectMapper;
+
+    private final Path file;
+
+    public FileSessionEventSink(ObjectMapper objectMapper, @Value("${oc.app.outboxFile}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public synchronized void publish(List<SessionEvent> events) {
+        StringBuilder lines = new StringBuilder();
+        try {
+            for (SessionEvent event : events) {
+                lines.append(this.objectMapper.writeValueAsString(event)).append('\n');
+            }
+            try (Writer writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(lines.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import com.openclassrooms.starterjwt.models.OutboxEvent;
+import com.openclassrooms.starterjwt.repository.OutboxEventRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Moves outbox events to the sinks on a single background thread, in batches of
+ * oc.app.outboxBatchSize. A run is requested after each commit that recorded events, and every
+ * oc.app.outboxPollMs as a safety net for runs lost to a failure or a restart. Requests made
+ * while a run is pending are coalesced into it.
+ *
+ * Each batch is read, handed to every sink and marked published in one transaction, so a sink
+ * failure leaves the whole batch to be offered again on the next run.
+ */
+@Component
+@Log4j2
+public class OutboxRelay {
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final List<SessionEventSink> sinks;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final long retentionMs;
+
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       List<SessionEventSink> sinks,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${oc.app.outboxBatchSize}") int batchSize,
+                       @Value("${oc.app.outboxRetentionMs}") long retentionMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retentionMs = retentionMs;
+    }
+
+    public void trigger() {
+        if (!this.pending.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.executor.execute(() -> {
+            this.pending.set(false);
+            try {
+                relayPending();
+            } catch (RuntimeException e) {
+                log.error("Outbox relay failed, will retry on the next run", e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.outboxPollMs}", initialDelayString = "${oc.app.outboxPollMs}")
+    public void poll() {
+        trigger();
+    }
+
+    /**
+     * Relays every unpublished event, one batch after the other.
+     *
+     * @return the number of events relayed
+     */
+    public synchronized int relayPending() {
+        int relayed = 0;
+        int published;
+        do {
+            published = this.transactionTemplate.execute(status -> publishBatch());
+            relayed += published;
+        } while (published == this.batchSize);
+
+        if (relayed > 0) {
+            log.debug("Relayed {} outbox event(s)", relayed);
+        }
+        return relayed;
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> batch = this.outboxEventRepository.findUnpublished(PageRequest.of(0, this.batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<SessionEvent> events = batch.stream()
+                .map(event -> new SessionEvent(event.getEventKey(), event.getType(), event.getSessionId(), event.getUserId()))
+                .collect(Collectors.toList());
+        for (SessionEventSink sink : this.sinks) {
+            sink.publish(events);
+        }
+
+        this.outboxEventRepository.markPublished(
+                batch.stream().map(OutboxEvent::getId).collect(Collectors.toList()), Instant.now());
+        return batch.size();
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.outboxPurgeMs}", initialDelayString = "${oc.app.outboxPurgeMs}")
+    public void purgePublished() {
+        int purged = this.transactionTemplate.execute(status ->
+                this.outboxEventRepository.deletePublishedBefore(Instant.now().minusMillis(this.retentionMs)));
+        log.debug("Purged {} published outbox event(s)", purged);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+}
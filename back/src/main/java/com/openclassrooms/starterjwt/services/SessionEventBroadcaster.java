@@ -0,0 +1,289 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes committed session events to every stream subscriber.
+ *
+ * Subscribers are async servlet responses, so an idle connection holds no thread. Each one has
+ * a bounded buffer and its own drain, run on a fixed pool of {@code oc.app.sessionStreamThreads}
+ * threads, so the thread count does not grow with the audience. Publishing only enqueues. A
+ * subscriber whose buffer is full, or whose write has been blocked for longer than
+ * {@code oc.app.sessionStreamSendTimeoutMs}, is disconnected instead of slowing everyone else
+ * down; the client reconnects and resumes from a fresh read. Clients that stop reading can
+ * therefore only hold a pool thread until the next sweep. A periodic comment keeps proxies
+ * from closing idle connections and detects dead ones.
+ */
+@Component
+@Log4j2
+public class SessionEventBroadcaster implements MeterBinder {
+    private final ObjectMapper objectMapper;
+
+    private final int bufferSize;
+
+    private final long timeoutMs;
+
+    private final long sendTimeoutNanos;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher;
+
+    private Counter dropped;
+
+    public SessionEventBroadcaster(ObjectMapper objectMapper,
+                                   @Value("${oc.app.sessionStreamBufferSize}") int bufferSize,
+                                   @Value("${oc.app.sessionStreamTimeoutMs}") long timeoutMs,
+                                   @Value("${oc.app.sessionStreamSendTimeoutMs}") long sendTimeoutMs,
+                                   @Value("${oc.app.sessionStreamThreads}") int threads) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        AtomicInteger count = new AtomicInteger();
+        // At most one drain per subscriber is queued or running at a time
+        this.dispatcher = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "session-stream-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(this.timeoutMs);
+        register(emitter);
+        return emitter;
+    }
+
+    void register(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        this.subscribers.add(subscriber);
+        emitter.onCompletion(() -> this.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> this.subscribers.remove(subscriber));
+        emitter.onError(e -> this.subscribers.remove(subscriber));
+    }
+
+    public int getSubscriberCount() {
+        return this.subscribers.size();
+    }
+
+    /**
+     * Runs once the relay transaction has committed, or straight away outside one. The event key
+     * is sent as the event id, so a client can skip an event redelivered by the outbox.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionEvent(SessionEvent event) {
+        String data;
+        try {
+            data = this.objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize {}", event, e);
+            return;
+        }
+
+        // Serialized once, whatever the number of subscribers
+        publish(new Message(event.getEventKey(), event.getType().name(), data));
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.sessionStreamHeartbeatMs}", initialDelayString = "${oc.app.sessionStreamHeartbeatMs}")
+    public void heartbeat() {
+        publish(Message.HEARTBEAT);
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.sessionStreamSendTimeoutMs}", initialDelayString = "${oc.app.sessionStreamSendTimeoutMs}")
+    public void sweep() {
+        expireStalledSends();
+    }
+
+    /**
+     * Disconnects every subscriber whose current write has been blocked for longer than the send
+     * timeout, interrupting the write so its thread is released.
+     *
+     * @return the number of subscribers disconnected
+     */
+    public int expireStalledSends() {
+        int expired = 0;
+        long now = System.nanoTime();
+        for (Subscriber subscriber : this.subscribers) {
+            if (subscriber.interruptSendStartedBefore(now - this.sendTimeoutNanos)) {
+                log.debug("Dropping a session stream subscriber whose write timed out");
+                drop(subscriber);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private void publish(Message message) {
+        for (Subscriber subscriber : this.subscribers) {
+            if (!subscriber.offer(message)) {
+                log.debug("Dropping a session stream subscriber whose buffer is full");
+                drop(subscriber);
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (this.dropped != null) {
+            this.dropped.increment();
+        }
+        subscriber.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("session.stream.subscribers", this.subscribers, Set::size)
+                .description("Open session event streams")
+                .register(registry);
+        this.dropped = Counter.builder("session.stream.dropped")
+                .description("Session event streams closed because the client did not keep up")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : this.subscribers) {
+            subscriber.close();
+        }
+        this.dispatcher.shutdown();
+    }
+
+    private static final class Message {
+        private static final Message HEARTBEAT = new Message(null, null, null);
+
+        private final String id;
+
+        private final String name;
+
+        private final String data;
+
+        private Message(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toEvent() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(this.id).name(this.name).data(this.data);
+        }
+    }
+
+    /**
+     * One connection with its own buffer. At most one dispatcher task drains it at a time, so
+     * events reach each client in order. The thread writing and the start of the write are kept,
+     * guarded by the subscriber's lock, so a stalled write can be interrupted without ever
+     * interrupting the thread once it has moved on to another subscriber.
+     */
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Message> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Thread sender;
+
+        private long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private boolean offer(Message message) {
+            if (!this.buffer.offer(message)) {
+                return false;
+            }
+            scheduleDrain();
+            return true;
+        }
+
+        private void scheduleDrain() {
+            if (this.draining.compareAndSet(false, true)) {
+                dispatcher.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Message message;
+                while ((message = this.buffer.poll()) != null) {
+                    startSend();
+                    this.emitter.send(message.toEvent());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, the emitter was already completed, or the write timed
+                // out; the container reports the broken connection to the emitter itself
+                subscribers.remove(this);
+                this.buffer.clear();
+                return;
+            } finally {
+                endSend();
+                this.draining.set(false);
+            }
+
+            // A message may have been offered after the last poll but before the flag was cleared
+            if (!this.buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private synchronized void startSend() {
+            this.sender = Thread.currentThread();
+            this.sendStartedAt = System.nanoTime();
+        }
+
+        private void endSend() {
+            synchronized (this) {
+                this.sender = null;
+            }
+            // Clears an interrupt that raced with the end of the write, before the thread is reused
+            Thread.interrupted();
+        }
+
+        private synchronized boolean interruptSendStartedBefore(long deadline) {
+            if (this.sender == null || this.sendStartedAt - deadline > 0) {
+                return false;
+            }
+            this.sender.interrupt();
+            return true;
+        }
+
+        /**
+         * Disconnects the client. Completion waits for a send in progress, so it runs on the
+         * dispatcher rather than on the publishing thread.
+         */
+        private void close() {
+            subscribers.remove(this);
+            this.buffer.clear();
+            dispatcher.execute(this.emitter::complete);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import com.openclassrooms.starterjwt.models.OutboxEvent;
+import com.openclassrooms.starterjwt.repository.OutboxEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Records session events in the caller's transaction, so an event exists if and only if the
+ * change it describes was committed. Delivery is left to the OutboxRelay, which is woken up
+ * once the transaction has committed.
+ */
+@Service
+public class SessionEventOutbox {
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxRelay outboxRelay;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionEventOutbox(OutboxEventRepository outboxEventRepository, OutboxRelay outboxRelay, JdbcTemplate jdbcTemplate) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxRelay = outboxRelay;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(SessionEvent.Type type, Long sessionId, Long userId) {
+        this.outboxEventRepository.save(newEvent(type, sessionId, userId));
+        triggerRelayAfterCommit();
+    }
+
+    /**
+     * Records one event per session, for changes written in bulk, and wakes the relay once.
+     * Ids are AUTO_INCREMENT, which keeps Hibernate from batching, so the rows are written as
+     * one JDBC batch instead of one insert each.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(SessionEvent.Type type, List<Long> sessionIds) {
+        Timestamp now = Timestamp.from(Instant.now());
+        this.jdbcTemplate.batchUpdate(
+                "insert into OUTBOX_EVENTS (event_key, type, session_id, user_id, created_at) values (?, ?, ?, null, ?)",
+                sessionIds, sessionIds.size(), (statement, sessionId) -> {
+                    statement.setString(1, UUID.randomUUID().toString());
+                    statement.setString(2, type.name());
+                    statement.setLong(3, sessionId);
+                    statement.setTimestamp(4, now);
+                });
+        triggerRelayAfterCommit();
+    }
+
+    private OutboxEvent newEvent(SessionEvent.Type type, Long sessionId, Long userId) {
+        return OutboxEvent.builder()
+                .eventKey(UUID.randomUUID().toString())
+                .type(type)
+                .sessionId(sessionId)
+                .userId(userId)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private void triggerRelayAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.trigger();
+            }
+        });
+    }
+}
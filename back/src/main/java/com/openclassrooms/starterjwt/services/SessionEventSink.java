@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+
+import java.util.List;
+
+/**
+ * A destination for relayed session events. Every sink bean receives every batch, in outbox
+ * order. Delivery is at least once: a batch is offered again after any sink throws, or if the
+ * relay stops before recording it as published, so sinks must tolerate an event key they have
+ * already seen.
+ */
+public interface SessionEventSink {
+    void publish(List<SessionEvent> events);
+}
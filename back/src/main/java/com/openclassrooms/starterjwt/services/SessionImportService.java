@@ -0,0 +1,179 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes large numbers of sessions at once. Sessions are handled in chunks the size of a JDBC
+ * batch: the teachers and participants of a chunk are checked with one query each, the chunk is
+ * inserted as a batch and the persistence context is cleared before the next one, so memory
+ * stays flat however long the input is. Errors name the offending session, numbered from 0 in
+ * input order like the reader's.
+ */
+@Service
+public class SessionImportService {
+    public static final int CHUNK_SIZE = 50;
+
+    private final SessionRepository sessionRepository;
+
+    private final TeacherRepository teacherRepository;
+
+    private final UserRepository userRepository;
+
+    private final SessionMapper sessionMapper;
+
+    private final SessionEventOutbox sessionEventOutbox;
+
+    private final EntityManager entityManager;
+
+    public SessionImportService(SessionRepository sessionRepository,
+                                TeacherRepository teacherRepository,
+                                UserRepository userRepository,
+                                SessionMapper sessionMapper,
+                                SessionEventOutbox sessionEventOutbox,
+                                EntityManager entityManager) {
+        this.sessionRepository = sessionRepository;
+        this.teacherRepository = teacherRepository;
+        this.userRepository = userRepository;
+        this.sessionMapper = sessionMapper;
+        this.sessionEventOutbox = sessionEventOutbox;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Imports every session of the iterator in a single transaction and returns how many were
+     * written. Nothing is written if any of them is invalid. Each session gets a CREATED event
+     * in the outbox, recorded with its chunk so it commits or rolls back with the import.
+     */
+    @Transactional
+    public int importSessions(Iterator<SessionDto> sessionDtos) {
+        int imported = 0;
+        List<SessionDto> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        while (sessionDtos.hasNext()) {
+            chunk.add(sessionDtos.next());
+            if (chunk.size() == CHUNK_SIZE) {
+                imported += writeChunk(chunk, imported);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            imported += writeChunk(chunk, imported);
+        }
+
+        return imported;
+    }
+
+    /**
+     * @param firstIndex the input position of the first session of the chunk
+     */
+    private int writeChunk(List<SessionDto> chunk, int firstIndex) {
+        Set<Long> teacherIds = chunk.stream()
+                .map(SessionDto::getTeacher_id)
+                .collect(Collectors.toSet());
+        Map<Long, Teacher> teachers = teacherRepository.findAllById(teacherIds).stream()
+                .collect(Collectors.toMap(Teacher::getId, Function.identity()));
+
+        Set<Long> userIds = chunk.stream()
+                .filter(sessionDto -> sessionDto.getUsers() != null)
+                .flatMap(sessionDto -> sessionDto.getUsers().stream())
+                .collect(Collectors.toSet());
+        Set<Long> existingUserIds = userIds.isEmpty() ? Collections.emptySet() : userRepository.findExistingIds(userIds);
+
+        List<Session> sessions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            SessionDto sessionDto = chunk.get(i);
+            Teacher teacher = teachers.get(sessionDto.getTeacher_id());
+            if (teacher == null) {
+                throw new BadRequestException("teacher " + sessionDto.getTeacher_id() + " does not exist");
+            }
+            checkParticipants(sessionDto, firstIndex + i, existingUserIds);
+
+            sessions.add(sessionMapper.toReferenceEntity(sessionDto)
+                    .setId(null)
+                    .setTeacher(teacher));
+        }
+
+        try {
+            sessionRepository.saveAll(sessions);
+            entityManager.flush();
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // Only reachable if a row changed since the checks above, e.g. a user deleted meanwhile
+            throw new BadRequestException(describeViolation(e));
+        }
+        sessionEventOutbox.recordAll(SessionEvent.Type.CREATED, sessions.stream()
+                .map(Session::getId)
+                .collect(Collectors.toList()));
+        entityManager.clear();
+
+        return sessions.size();
+    }
+
+    private void checkParticipants(SessionDto sessionDto, int index, Set<Long> existingUserIds) {
+        if (sessionDto.getUsers() == null) {
+            return;
+        }
+
+        for (Long userId : sessionDto.getUsers()) {
+            if (!existingUserIds.contains(userId)) {
+                throw new BadRequestException("session #" + index + ": user " + userId + " does not exist");
+            }
+        }
+
+        long participants = sessionDto.getUsers().stream().distinct().count();
+        if (sessionDto.getCapacity() != null && participants > sessionDto.getCapacity()) {
+            throw new BadRequestException("session #" + index + ": " + participants
+                    + " participants exceed the capacity of " + sessionDto.getCapacity());
+        }
+    }
+
+    /**
+     * Names the reference a constraint violation broke. Constraint names are generated by the
+     * database, so the referenced table is read from the driver's message instead.
+     */
+    static String describeViolation(RuntimeException e) {
+        ConstraintViolationException violation = null;
+        for (Throwable cause = e; cause != null && violation == null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                violation = (ConstraintViolationException) cause;
+            }
+        }
+        if (violation == null) {
+            return "sessions could not be written";
+        }
+
+        String detail = violation.getSQLException() != null && violation.getSQLException().getMessage() != null
+                ? violation.getSQLException().getMessage().toUpperCase(Locale.ROOT)
+                : "";
+        if (detail.contains("FOREIGN KEY") && detail.contains("USERS")) {
+            return "sessions reference users that do not exist";
+        }
+        if (detail.contains("FOREIGN KEY") && detail.contains("TEACHERS")) {
+            return "sessions reference teachers that do not exist";
+        }
+        return "sessions violate constraint " + violation.getConstraintName();
+    }
+}
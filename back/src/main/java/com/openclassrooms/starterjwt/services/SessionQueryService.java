@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Read side for sessions. Pages are built from a constructor projection of the session columns
+ * and one set-based query for the participant ids of the whole page, so neither Session, Teacher
+ * nor User entities are ever loaded.
+ */
+@Service
+public class SessionQueryService {
+    private final SessionRepository sessionRepository;
+
+    private final SessionService sessionService;
+
+    public SessionQueryService(SessionRepository sessionRepository, SessionService sessionService) {
+        this.sessionRepository = sessionRepository;
+        this.sessionService = sessionService;
+    }
+
+    public Slice<SessionDto> findPage(SessionCursor after, Date from, Date to, Long teacherId, Integer size) {
+        Slice<SessionDto> page = this.sessionRepository.findDtoPage(
+                after != null ? after.getDate() : null,
+                after != null ? after.getId() : null,
+                from,
+                to,
+                teacherId,
+                SessionService.firstPage(size));
+
+        withParticipants(page.getContent());
+        return page;
+    }
+
+    public SessionDto findById(Long id) {
+        SessionDto sessionDto = this.sessionRepository.findDtoById(id).orElse(null);
+        if (sessionDto != null) {
+            withParticipants(Collections.singletonList(sessionDto));
+        }
+        return sessionDto;
+    }
+
+    /**
+     * Version of one session, read without the session itself; null when it does not exist.
+     */
+    public ResourceVersion findVersion(Long id) {
+        return this.sessionRepository.findVersionById(id).orElse(null);
+    }
+
+    /**
+     * Version of the whole session collection, which every page and filter of it shares.
+     */
+    public ResourceVersion findCollectionVersion() {
+        return this.sessionRepository.findCollectionVersion();
+    }
+
+    private void withParticipants(List<SessionDto> sessionDtos) {
+        if (sessionDtos.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<Long>> participantIds = this.sessionService.findParticipantIds(sessionDtos.stream()
+                .map(SessionDto::getId)
+                .collect(Collectors.toList()));
+        for (SessionDto sessionDto : sessionDtos) {
+            sessionDto.setUsers(participantIds.getOrDefault(sessionDto.getId(), new ArrayList<>()));
+        }
+    }
+}
@@ -1,78 +1,262 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.metrics.TaggedTimer;
+import com.openclassrooms.starterjwt.models.ParticipationStatus;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
-public class SessionService {
+public class SessionService implements MeterBinder {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final SessionRepository sessionRepository;
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final WaitlistPromotionWorker waitlistPromotionWorker;
+
+    private final SessionEventOutbox sessionEventOutbox;
+
+    private final TaggedTimer participations = new TaggedTimer("session.participate",
+            "Booking attempts, by outcome", "outcome");
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          WaitlistRepository waitlistRepository,
+                          WaitlistPromotionWorker waitlistPromotionWorker,
+                          SessionEventOutbox sessionEventOutbox) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.waitlistPromotionWorker = waitlistPromotionWorker;
+        this.sessionEventOutbox = sessionEventOutbox;
     }
 
+    @Transactional
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        Session created = save(session);
+        this.sessionEventOutbox.record(SessionEvent.Type.CREATED, created.getId(), null);
+        return created;
     }
 
+    @Transactional
     public void delete(Long id) {
+        this.waitlistRepository.deleteBySessionId(id);
         this.sessionRepository.deleteById(id);
+        this.sessionEventOutbox.record(SessionEvent.Type.DELETED, id, null);
     }
 
     public List<Session> findAll() {
         return this.sessionRepository.findAll();
     }
 
+    public Slice<Session> findPage(SessionCursor after, Date from, Date to, Long teacherId, Integer size) {
+        return this.sessionRepository.findPage(
+                after != null ? after.getDate() : null,
+                after != null ? after.getId() : null,
+                from,
+                to,
+                teacherId,
+                firstPage(size));
+    }
+
+    /**
+     * First page of the requested size, defaulted and capped to the allowed page sizes.
+     */
+    static Pageable firstPage(Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return PageRequest.of(0, pageSize);
+    }
+
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
-    public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+    public boolean exists(Long id) {
+        return this.sessionRepository.existsById(id);
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+    public Map<Long, List<Long>> findParticipantIds(Collection<Long> sessionIds) {
+        Map<Long, List<Long>> participantIds = new HashMap<>();
+        if (sessionIds.isEmpty()) {
+            return participantIds;
+        }
+
+        for (Object[] row : this.sessionRepository.findParticipantIds(sessionIds)) {
+            participantIds.computeIfAbsent(((Number) row[0]).longValue(), key -> new ArrayList<>())
+                    .add(((Number) row[1]).longValue());
+        }
+        return participantIds;
+    }
+
+    /**
+     * Copies the editable fields onto the stored session; participants are only ever changed
+     * through participate and leave. A null capacity keeps the current one. A new capacity locks
+     * the row like a booking does, and may not drop below the seats already taken.
+     */
+    @Transactional
+    public Session update(Long id, Session changes) {
+        Integer capacity = changes.getCapacity();
+        Session session = (capacity != null
+                ? this.sessionRepository.findForBookingById(id)
+                : this.sessionRepository.findById(id)).orElseThrow(NotFoundException::new);
+        if (capacity != null && this.sessionRepository.countParticipants(id) > capacity) {
+            throw new BadRequestException("capacity is below the number of participants");
+        }
+
+        session.setName(changes.getName())
+                .setDate(changes.getDate())
+                .setDescription(changes.getDescription())
+                .setTeacher(changes.getTeacher());
+        if (capacity != null) {
+            session.setCapacity(capacity);
+        }
+        Session updated = save(session);
+        this.sessionEventOutbox.record(SessionEvent.Type.UPDATED, id, null);
+
+        // A raised capacity may open seats for waiters
+        this.waitlistPromotionWorker.schedule(id);
+        return updated;
+    }
+
+    /**
+     * Saves and flushes the session, turning a teacher or user reference to a missing row into a
+     * bad request.
+     */
+    private Session save(Session session) {
+        try {
+            return this.sessionRepository.saveAndFlush(session);
+        } catch (DataIntegrityViolationException | EntityNotFoundException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * Books a seat, or queues the user on the waitlist when the class is full or others are
+     * already waiting. Only a request that may take a seat locks the session row, for the rest
+     * of the transaction, so concurrent bookings on the same session are serialized and
+     * capacity is never exceeded while overflow requests queue up without waiting on the lock.
+     * Timed as {@code session.participate}, tagged booked, waitlisted, already_participating
+     * or not_found.
+     */
+    @Transactional
+    public ParticipationStatus participate(Long id, Long userId) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            ParticipationStatus status = book(id, userId);
+            outcome = status == ParticipationStatus.BOOKED ? "booked" : "waitlisted";
+            return status;
+        } catch (NotFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } catch (BadRequestException e) {
+            outcome = "already_participating";
+            throw e;
+        } finally {
+            this.participations.recordSince(outcome, start);
+        }
+    }
+
+    private ParticipationStatus book(Long id, Long userId) {
+        if (!this.userRepository.existsById(userId)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        Session session = this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (this.sessionRepository.countParticipant(id, userId) > 0
+                || this.waitlistRepository.existsBySessionIdAndUserId(id, userId)) {
+            throw new BadRequestException();
+        }
+
+        // Without a capacity there is nothing to count, and the key rejects duplicates
+        if (session.getCapacity() != null) {
+            // A full class only grows its waitlist, so joining it needs no lock. The promotion
+            // run scheduled behind it catches a seat freed before this row was committed.
+            if (mustWait(session)) {
+                ParticipationStatus status = waitlist(id, userId);
+                this.waitlistPromotionWorker.schedule(id);
+                return status;
+            }
+
+            session = this.sessionRepository.findForBookingById(id).orElseThrow(NotFoundException::new);
+            if (mustWait(session)) {
+                return waitlist(id, userId);
+            }
+        }
+
+        try {
+            this.sessionRepository.addParticipant(id, userId);
+            this.sessionRepository.touch(id, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            // The (session_id, user_id) key rejected a duplicate row
             throw new BadRequestException();
         }
+        this.sessionEventOutbox.record(SessionEvent.Type.PARTICIPATED, id, userId);
+        return ParticipationStatus.BOOKED;
+    }
 
-        session.getUsers().add(user);
+    private boolean mustWait(Session session) {
+        return this.sessionRepository.countParticipants(session.getId()) >= session.getCapacity()
+                || this.waitlistRepository.existsBySessionId(session.getId());
+    }
 
-        this.sessionRepository.save(session);
+    private ParticipationStatus waitlist(Long id, Long userId) {
+        try {
+            this.waitlistRepository.save(WaitlistEntry.builder().sessionId(id).userId(userId).build());
+        } catch (DataIntegrityViolationException e) {
+            // The (session_id, user_id) key rejected a concurrent duplicate
+            throw new BadRequestException();
+        }
+        return ParticipationStatus.WAITLISTED;
     }
 
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
+        if (!this.sessionRepository.existsById(id)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+        if (this.sessionRepository.removeParticipant(id, userId) > 0) {
+            this.sessionRepository.touch(id, LocalDateTime.now());
+            this.sessionEventOutbox.record(SessionEvent.Type.LEFT, id, userId);
+            this.waitlistPromotionWorker.schedule(id);
+        } else if (this.waitlistRepository.deleteBySessionIdAndUserId(id, userId) == 0) {
             throw new BadRequestException();
         }
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
-
-        this.sessionRepository.save(session);
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.participations.bindTo(registry);
     }
 }
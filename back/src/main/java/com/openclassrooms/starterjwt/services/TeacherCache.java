@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of the teacher catalog, by id and as the full list. It holds read DTOs only,
+ * never entities, which belong to one persistence context each. Any write through JPA
+ * empties it (see {@link TeacherCacheInvalidator}). Hit and miss counts are published as the
+ * {@code cache.gets} meters tagged {@code cache=teachers} and {@code cache=teachers.all}.
+ */
+@Component
+public class TeacherCache implements MeterBinder {
+    private static final String ALL = "all";
+
+    private final Cache<Long, TeacherDto> byId;
+
+    private final Cache<String, List<TeacherDto>> all;
+
+    public TeacherCache(@Value("${oc.app.teacherCacheMaxSize}") long maxSize,
+                        @Value("${oc.app.teacherCacheTtlMs}") long ttlMs) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.all = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached teacher, or loads it; a missing teacher is not cached.
+     */
+    public TeacherDto findById(Long id, Function<Long, TeacherDto> loader) {
+        return byId.get(id, loader);
+    }
+
+    public TeacherDto getIfPresent(Long id) {
+        return byId.getIfPresent(id);
+    }
+
+    public List<TeacherDto> findAll(Supplier<List<TeacherDto>> loader) {
+        return all.get(ALL, key -> loader.get());
+    }
+
+    public void evictAll() {
+        byId.invalidateAll();
+        all.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "teachers");
+        CaffeineCacheMetrics.monitor(registry, all, "teachers.all");
+    }
+}
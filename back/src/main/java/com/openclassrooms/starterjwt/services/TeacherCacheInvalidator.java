@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Empties the TeacherCache whenever a teacher is written through JPA, once when the change is
+ * flushed and again after the transaction commits, so a reader that reloaded in between cannot
+ * leave the old state behind. It registers itself with Hibernate's event listeners, which keeps
+ * the Teacher entity unaware of the cache.
+ */
+@Component
+public class TeacherCacheInvalidator implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private final TeacherCache teacherCache;
+
+    @Autowired
+    public TeacherCacheInvalidator(TeacherCache teacherCache, EntityManagerFactory entityManagerFactory) {
+        this(teacherCache);
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, this);
+        listeners.appendListeners(EventType.POST_UPDATE, this);
+        listeners.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    TeacherCacheInvalidator(TeacherCache teacherCache) {
+        this.teacherCache = teacherCache;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        onWrite(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onWrite(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        onWrite(event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    void onWrite(Object entity) {
+        if (!(entity instanceof Teacher)) {
+            return;
+        }
+
+        teacherCache.evictAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    teacherCache.evictAll();
+                }
+            });
+        }
+    }
+}
@@ -1,24 +1,47 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 
 @Service
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final TeacherMapper teacherMapper;
+
+    private final TeacherCache teacherCache;
+
+    public TeacherService(TeacherRepository teacherRepository, TeacherMapper teacherMapper, TeacherCache teacherCache) {
         this.teacherRepository = teacherRepository;
+        this.teacherMapper = teacherMapper;
+        this.teacherCache = teacherCache;
+    }
+
+    /**
+     * The teacher catalog, served from the cache. The list is shared between callers, so it is
+     * read-only.
+     */
+    public List<TeacherDto> findAll() {
+        return this.teacherCache.findAll(() ->
+                Collections.unmodifiableList(this.teacherMapper.toDto(this.teacherRepository.findAll())));
     }
 
-    public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+    public TeacherDto findById(Long id) {
+        return this.teacherCache.findById(id, key ->
+                this.teacherRepository.findById(key).map(this.teacherMapper::toDto).orElse(null));
     }
 
-    public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+    /**
+     * Returns a lazy reference to the teacher without querying it, for use as an association.
+     * It belongs to the caller's persistence context, never to the cache.
+     */
+    public Teacher getReference(Long id) {
+        return this.teacherRepository.getById(id);
     }
 }
@@ -1,22 +1,79 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenCache;
+import com.openclassrooms.starterjwt.security.jwt.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationRegistry;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final AuthTokenCache authTokenCache;
+
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+
+    private final RefreshTokenService refreshTokenService;
+
+    public UserService(UserRepository userRepository,
+                       AuthTokenCache authTokenCache,
+                       TokenRevocationRegistry tokenRevocationRegistry,
+                       RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
+        this.authTokenCache = authTokenCache;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.refreshTokenService = refreshTokenService;
     }
 
+    /**
+     * Deletes the user. Their access tokens are refused from then on, since a missing user has
+     * no token version to match.
+     */
+    @Transactional
     public void delete(Long id) {
+        this.refreshTokenService.revokeUser(id);
         this.userRepository.deleteById(id);
+        this.authTokenCache.evictUser(id);
+    }
+
+    /**
+     * To be called whenever a user's email, names, password or admin flag change. Tokens issued
+     * before carry the old values, so they are refused from then on, here at once and on other
+     * nodes when their cached principal expires, and the user has to log in again.
+     */
+    @Transactional
+    public void revokeTokens(Long id) {
+        this.refreshTokenService.revokeUser(id);
+        this.tokenRevocationRegistry.revokeUser(id);
+        this.authTokenCache.evictUser(id);
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    /**
+     * Version of the user, read without the user itself; null when it does not exist.
+     */
+    public ResourceVersion findVersion(Long id) {
+        return this.userRepository.findVersionById(id).orElse(null);
+    }
+
+    public List<User> findAllById(Collection<Long> ids) {
+        return this.userRepository.findAllById(ids);
+    }
+
+    /**
+     * Returns a lazy reference to the user without querying it, for use as an association.
+     */
+    public User getReference(Long id) {
+        return this.userRepository.getById(id);
+    }
 }
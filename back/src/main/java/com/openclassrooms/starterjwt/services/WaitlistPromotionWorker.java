@@ -0,0 +1,100 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Promotes waiters on a single background thread, outside the request that freed the seat.
+ * Requests for a session already queued are coalesced into the pending run.
+ *
+ * The queue lives in memory, so a run that fails or is lost to a restart is only caught up by
+ * the sweep: every {@code oc.app.waitlistSweepMs}, each session with both waiters and a free seat
+ * is queued again. The database is the source of truth, so the sweep needs no state of its own.
+ */
+@Component
+@Log4j2
+public class WaitlistPromotionWorker {
+    private final WaitlistService waitlistService;
+
+    private final WaitlistRepository waitlistRepository;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "waitlist-promotion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WaitlistPromotionWorker(WaitlistService waitlistService, WaitlistRepository waitlistRepository) {
+        this.waitlistService = waitlistService;
+        this.waitlistRepository = waitlistRepository;
+    }
+
+    /**
+     * Queues a promotion run for the session once the current transaction, if any, has committed.
+     */
+    public void schedule(Long sessionId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(sessionId);
+                }
+            });
+        } else {
+            submit(sessionId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${oc.app.waitlistSweepMs}", initialDelayString = "${oc.app.waitlistSweepMs}")
+    public void sweep() {
+        resubmitPromotable();
+    }
+
+    /**
+     * Queues a promotion run for every session owed one.
+     *
+     * @return the number of sessions found
+     */
+    public int resubmitPromotable() {
+        List<Long> sessionIds = this.waitlistRepository.findPromotableSessionIds();
+        if (!sessionIds.isEmpty()) {
+            log.info("Waitlist sweep found {} session(s) with free seats and waiters", sessionIds.size());
+        }
+        sessionIds.forEach(this::submit);
+        return sessionIds.size();
+    }
+
+    private void submit(Long sessionId) {
+        if (!this.pending.add(sessionId)) {
+            return;
+        }
+
+        this.executor.execute(() -> {
+            this.pending.remove(sessionId);
+            try {
+                int promoted = this.waitlistService.promote(sessionId);
+                log.debug("Promoted {} waiter(s) on session {}", promoted, sessionId);
+            } catch (RuntimeException e) {
+                log.error("Waitlist promotion failed for session {}, the next sweep retries it", sessionId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class WaitlistService {
+    private final SessionRepository sessionRepository;
+
+    private final WaitlistRepository waitlistRepository;
+
+    private final SessionEventOutbox sessionEventOutbox;
+
+    public WaitlistService(SessionRepository sessionRepository,
+                           WaitlistRepository waitlistRepository,
+                           SessionEventOutbox sessionEventOutbox) {
+        this.sessionRepository = sessionRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.sessionEventOutbox = sessionEventOutbox;
+    }
+
+    /**
+     * Moves waiters into free seats, oldest first. Runs under the same session row lock as
+     * bookings and recomputes everything from the database, so repeated calls are harmless.
+     *
+     * @return the number of users promoted
+     */
+    @Transactional
+    public int promote(Long sessionId) {
+        Session session = this.sessionRepository.findForBookingById(sessionId).orElse(null);
+        if (session == null) {
+            return 0;
+        }
+
+        long freeSeats = session.getCapacity() == null
+                ? Long.MAX_VALUE
+                : session.getCapacity() - this.sessionRepository.countParticipants(sessionId);
+
+        int promoted = 0;
+        while (promoted < freeSeats) {
+            Optional<WaitlistEntry> next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId);
+            if (!next.isPresent()) {
+                break;
+            }
+
+            this.waitlistRepository.delete(next.get());
+            if (this.sessionRepository.countParticipant(sessionId, next.get().getUserId()) == 0) {
+                this.sessionRepository.addParticipant(sessionId, next.get().getUserId());
+                this.sessionEventOutbox.record(SessionEvent.Type.PARTICIPATED, sessionId, next.get().getUserId());
+                promoted++;
+            }
+        }
+
+        if (promoted > 0) {
+            this.sessionRepository.touch(sessionId, LocalDateTime.now());
+        }
+        return promoted;
+    }
+}
@@ -0,0 +1,63 @@
+package com.openclassrooms.starterjwt.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for VirtualThreadConfig and VirtualThreads
+ */
+public class VirtualThreadConfigTest {
+
+    @Test
+    public void testHandsTheExecutorToTomcat() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        VirtualThreadConfig config = new VirtualThreadConfig(executor);
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+
+        config.virtualThreadProtocolHandlerCustomizer().customize(protocolHandler);
+        config.destroy();
+
+        verify(protocolHandler).setExecutor(executor);
+        assertThat(executor.isShutdown()).isTrue();
+    }
+
+    @Test
+    public void testRunsTasksOnVirtualThreads() throws Exception {
+        assumeTrue(hasVirtualThreads());
+        ExecutorService executor = VirtualThreads.newExecutor("test-virtual-");
+
+        Future<String> name = executor.submit(() -> Thread.currentThread().getName());
+
+        assertThat(name.get()).isEqualTo("test-virtual-0");
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRefusesOlderJava() {
+        assumeFalse(hasVirtualThreads());
+
+        assertThatThrownBy(() -> VirtualThreads.newExecutor("test-virtual-"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 21");
+    }
+
+    private static boolean hasVirtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
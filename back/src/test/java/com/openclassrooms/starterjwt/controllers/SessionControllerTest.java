@@ -1,10 +1,14 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
+import com.openclassrooms.starterjwt.dto.SessionCursor;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.ParticipationStatus;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.services.SessionQueryService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,15 +16,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,11 +47,15 @@ public class SessionControllerTest {
     @MockBean
     private SessionService sessionService;
 
+    @MockBean
+    private SessionQueryService sessionQueryService;
+
     @MockBean
     private SessionMapper sessionMapper;
 
     private Session session;
     private SessionDto sessionDto;
+    private ResourceVersion version;
 
     @BeforeEach
     public void setup() {
@@ -60,31 +73,48 @@ public class SessionControllerTest {
         sessionDto.setDate(new Date());
         sessionDto.setDescription("A relaxing yoga session");
         sessionDto.setTeacher_id(1L);
+
+        version = new ResourceVersion(1L, LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(sessionQueryService.findVersion(1L)).thenReturn(version);
+        when(sessionQueryService.findCollectionVersion()).thenReturn(version);
     }
 
     @Test
     public void testFindById_Success() throws Exception {
-        when(sessionService.getById(1L)).thenReturn(session);
-        when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+        when(sessionQueryService.findById(1L)).thenReturn(sessionDto);
 
         mockMvc.perform(get("/api/session/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", version.getETag()))
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.name").value("Yoga Session"));
 
-        verify(sessionService, times(1)).getById(1L);
-        verify(sessionMapper, times(1)).toDto(session);
+        verify(sessionQueryService, times(1)).findById(1L);
+        verify(sessionMapper, never()).toDto(any(Session.class));
     }
 
     @Test
-    public void testFindById_NotFound() throws Exception {
-        when(sessionService.getById(anyLong())).thenReturn(null);
+    public void testFindById_NotModified() throws Exception {
+        mockMvc.perform(get("/api/session/1").header("If-None-Match", version.getETag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(sessionQueryService, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testStream_StartsAsync() throws Exception {
+        mockMvc.perform(get("/api/session/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
 
+    @Test
+    public void testFindById_NotFound() throws Exception {
         mockMvc.perform(get("/api/session/99"))
                 .andExpect(status().isNotFound());
 
-        verify(sessionService, times(1)).getById(99L);
-        verify(sessionMapper, never()).toDto(any(Session.class));
+        verify(sessionQueryService, times(1)).findVersion(99L);
+        verify(sessionQueryService, never()).findById(anyLong());
     }
 
     @Test
@@ -92,36 +122,73 @@ public class SessionControllerTest {
         mockMvc.perform(get("/api/session/invalid"))
                 .andExpect(status().isBadRequest());
 
-        verify(sessionService, never()).getById(anyLong());
+        verify(sessionQueryService, never()).findById(anyLong());
     }
 
     @Test
     public void testFindAll() throws Exception {
-        Session session2 = Session.builder()
-                .id(2L)
-                .name("Pilates Session")
-                .date(new Date())
-                .description("Pilates class")
-                .build();
-
         SessionDto sessionDto2 = new SessionDto();
         sessionDto2.setId(2L);
         sessionDto2.setName("Pilates Session");
 
-        List<Session> sessions = Arrays.asList(session, session2);
         List<SessionDto> sessionDtos = Arrays.asList(sessionDto, sessionDto2);
 
-        when(sessionService.findAll()).thenReturn(sessions);
-        when(sessionMapper.toDto(sessions)).thenReturn(sessionDtos);
+        when(sessionQueryService.findPage(isNull(), isNull(), isNull(), isNull(), isNull()))
+                .thenReturn(new SliceImpl<>(sessionDtos, PageRequest.of(0, 2), false));
 
         mockMvc.perform(get("/api/session"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(SessionController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].name").value("Yoga Session"))
                 .andExpect(jsonPath("$[1].name").value("Pilates Session"));
 
-        verify(sessionService, times(1)).findAll();
+        verify(sessionQueryService, times(1)).findPage(isNull(), isNull(), isNull(), isNull(), isNull());
+        verify(sessionMapper, never()).toDto(anyList());
+    }
+
+    @Test
+    public void testFindAll_SizeOnly() throws Exception {
+        when(sessionQueryService.findPage(isNull(), isNull(), isNull(), isNull(), eq(1)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(sessionDto), PageRequest.of(0, 1), true));
+
+        mockMvc.perform(get("/api/session").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SessionController.NEXT_CURSOR_HEADER, SessionCursor.of(sessionDto).encode()))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void testFindAll_NotModified() throws Exception {
+        mockMvc.perform(get("/api/session").header("If-None-Match", version.getETag()))
+                .andExpect(status().isNotModified());
+
+        verify(sessionQueryService, never()).findPage(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFindAll_WithNextCursor() throws Exception {
+        when(sessionQueryService.findPage(any(SessionCursor.class), isNull(), isNull(), eq(1L), eq(1)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(sessionDto), PageRequest.of(0, 1), true));
+
+        String cursor = new SessionCursor(new Date(0), 7L).encode();
+
+        mockMvc.perform(get("/api/session")
+                        .param("cursor", cursor)
+                        .param("size", "1")
+                        .param("teacherId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SessionController.NEXT_CURSOR_HEADER, SessionCursor.of(sessionDto).encode()))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void testFindAll_InvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/session").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        verify(sessionQueryService, never()).findPage(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -168,24 +235,24 @@ public class SessionControllerTest {
 
     @Test
     public void testDelete_Success() throws Exception {
-        when(sessionService.getById(1L)).thenReturn(session);
+        when(sessionService.exists(1L)).thenReturn(true);
         doNothing().when(sessionService).delete(1L);
 
         mockMvc.perform(delete("/api/session/1"))
                 .andExpect(status().isOk());
 
-        verify(sessionService, times(1)).getById(1L);
+        verify(sessionService, times(1)).exists(1L);
         verify(sessionService, times(1)).delete(1L);
     }
 
     @Test
     public void testDelete_NotFound() throws Exception {
-        when(sessionService.getById(anyLong())).thenReturn(null);
+        when(sessionService.exists(anyLong())).thenReturn(false);
 
         mockMvc.perform(delete("/api/session/99"))
                 .andExpect(status().isNotFound());
 
-        verify(sessionService, times(1)).getById(99L);
+        verify(sessionService, times(1)).exists(99L);
         verify(sessionService, never()).delete(anyLong());
     }
 
@@ -194,13 +261,13 @@ public class SessionControllerTest {
         mockMvc.perform(delete("/api/session/invalid"))
                 .andExpect(status().isBadRequest());
 
-        verify(sessionService, never()).getById(anyLong());
+        verify(sessionService, never()).exists(anyLong());
         verify(sessionService, never()).delete(anyLong());
     }
 
     @Test
     public void testParticipate_Success() throws Exception {
-        doNothing().when(sessionService).participate(1L, 1L);
+        when(sessionService.participate(1L, 1L)).thenReturn(ParticipationStatus.BOOKED);
 
         mockMvc.perform(post("/api/session/1/participate/1"))
                 .andExpect(status().isOk());
@@ -208,6 +275,14 @@ public class SessionControllerTest {
         verify(sessionService, times(1)).participate(1L, 1L);
     }
 
+    @Test
+    public void testParticipate_Waitlisted() throws Exception {
+        when(sessionService.participate(1L, 2L)).thenReturn(ParticipationStatus.WAITLISTED);
+
+        mockMvc.perform(post("/api/session/1/participate/2"))
+                .andExpect(status().isAccepted());
+    }
+
     @Test
     public void testParticipate_InvalidId() throws Exception {
         mockMvc.perform(post("/api/session/invalid/participate/1"))
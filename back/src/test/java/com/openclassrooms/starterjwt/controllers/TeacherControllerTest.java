@@ -1,8 +1,7 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
-import com.openclassrooms.starterjwt.mapper.TeacherMapper;
-import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,10 +12,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -32,31 +31,21 @@ public class TeacherControllerTest {
     @MockBean
     private TeacherService teacherService;
 
-    @MockBean
-    private TeacherMapper teacherMapper;
-
-    private Teacher teacher;
     private TeacherDto teacherDto;
 
     @BeforeEach
     public void setup() {
-        teacher = Teacher.builder()
-                .id(1L)
-                .lastName("Smith")
-                .firstName("Jane")
-                .build();
-
         teacherDto = new TeacherDto();
         teacherDto.setId(1L);
         teacherDto.setLastName("Smith");
         teacherDto.setFirstName("Jane");
+        teacherDto.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
     }
 
     @Test
     @WithMockUser
     public void testFindById_Success() throws Exception {
-        when(teacherService.findById(1L)).thenReturn(teacher);
-        when(teacherMapper.toDto(teacher)).thenReturn(teacherDto);
+        when(teacherService.findById(1L)).thenReturn(teacherDto);
 
         mockMvc.perform(get("/api/teacher/1"))
                 .andExpect(status().isOk())
@@ -65,7 +54,17 @@ public class TeacherControllerTest {
                 .andExpect(jsonPath("$.lastName").value("Smith"));
 
         verify(teacherService, times(1)).findById(1L);
-        verify(teacherMapper, times(1)).toDto(teacher);
+    }
+
+    @Test
+    @WithMockUser
+    public void testFindById_NotModified() throws Exception {
+        when(teacherService.findById(1L)).thenReturn(teacherDto);
+        String eTag = new ResourceVersion(1L, teacherDto.getUpdatedAt()).getETag();
+
+        mockMvc.perform(get("/api/teacher/1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 
     @Test
@@ -77,7 +76,6 @@ public class TeacherControllerTest {
                 .andExpect(status().isNotFound());
 
         verify(teacherService, times(1)).findById(99L);
-        verify(teacherMapper, never()).toDto(any(Teacher.class));
     }
 
     @Test
@@ -92,22 +90,14 @@ public class TeacherControllerTest {
     @Test
     @WithMockUser
     public void testFindAll() throws Exception {
-        Teacher teacher2 = Teacher.builder()
-                .id(2L)
-                .lastName("Doe")
-                .firstName("John")
-                .build();
-
         TeacherDto teacherDto2 = new TeacherDto();
         teacherDto2.setId(2L);
         teacherDto2.setLastName("Doe");
         teacherDto2.setFirstName("John");
 
-        List<Teacher> teachers = Arrays.asList(teacher, teacher2);
         List<TeacherDto> teacherDtos = Arrays.asList(teacherDto, teacherDto2);
 
-        when(teacherService.findAll()).thenReturn(teachers);
-        when(teacherMapper.toDto(teachers)).thenReturn(teacherDtos);
+        when(teacherService.findAll()).thenReturn(teacherDtos);
 
         mockMvc.perform(get("/api/teacher"))
                 .andExpect(status().isOk())
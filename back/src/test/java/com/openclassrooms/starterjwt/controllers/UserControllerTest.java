@@ -1,5 +1,6 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.dto.ResourceVersion;
 import com.openclassrooms.starterjwt.dto.UserDto;
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
@@ -13,6 +14,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
@@ -34,6 +37,7 @@ public class UserControllerTest {
 
     private User user;
     private UserDto userDto;
+    private ResourceVersion version;
 
     @BeforeEach
     public void setup() {
@@ -52,6 +56,9 @@ public class UserControllerTest {
         userDto.setLastName("Doe");
         userDto.setFirstName("John");
         userDto.setAdmin(false);
+
+        version = new ResourceVersion(1L, LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(userService.findVersion(1L)).thenReturn(version);
     }
 
     @Test
@@ -72,13 +79,22 @@ public class UserControllerTest {
 
     @Test
     @WithMockUser
-    public void testFindById_NotFound() throws Exception {
-        when(userService.findById(anyLong())).thenReturn(null);
+    public void testFindById_NotModified() throws Exception {
+        mockMvc.perform(get("/api/user/1").header("If-None-Match", version.getETag()))
+                .andExpect(status().isNotModified());
 
+        verify(userService, never()).findById(anyLong());
+        verify(userMapper, never()).toDto(any(User.class));
+    }
+
+    @Test
+    @WithMockUser
+    public void testFindById_NotFound() throws Exception {
         mockMvc.perform(get("/api/user/99"))
                 .andExpect(status().isNotFound());
 
-        verify(userService, times(1)).findById(99L);
+        verify(userService, times(1)).findVersion(99L);
+        verify(userService, never()).findById(anyLong());
         verify(userMapper, never()).toDto(any(User.class));
     }
 
@@ -4,19 +4,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,16 +43,24 @@ public class AuthIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Value("${oc.app.bcryptStrength}")
+    private int bcryptStrength;
+
     @BeforeEach
     public void setup() {
+        refreshTokenRepository.deleteAll();
         userRepository.deleteAll();
     }
 
     @AfterEach
     public void cleanup() {
+        refreshTokenRepository.deleteAll();
         userRepository.deleteAll();
     }
 
@@ -71,6 +85,8 @@ public class AuthIntegrationTest {
         assertThat(savedUser.getFirstName()).isEqualTo("New");
         assertThat(savedUser.getLastName()).isEqualTo("User");
         assertThat(savedUser.isAdmin()).isFalse();
+        // Hashed at the configured BCrypt cost
+        assertThat(savedUser.getPassword()).startsWith(String.format("$2a$%02d$", bcryptStrength));
 
         // 2. Login with the new user
         LoginRequest loginRequest = new LoginRequest();
@@ -161,4 +177,94 @@ public class AuthIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.admin").value(true));
     }
+
+    @Test
+    public void testRefreshTokenRotation() throws Exception {
+        User user = userRepository.save(User.builder()
+                .email("refresh@test.com")
+                .firstName("Refresh")
+                .lastName("User")
+                .password(passwordEncoder.encode("password"))
+                .admin(true)
+                .build());
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("refresh@test.com");
+        loginRequest.setPassword("password");
+
+        MvcResult login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshToken").exists())
+                .andReturn();
+        String refreshToken = objectMapper.readTree(login.getResponse().getContentAsString()).get("refreshToken").asText();
+        assertThat(refreshTokenRepository.count()).isEqualTo(1);
+
+        // Exchange the refresh token for a new pair
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken(refreshToken);
+
+        MvcResult refresh = mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.type").value("Bearer"))
+                .andExpect(jsonPath("$.refreshToken").exists())
+                .andReturn();
+        String accessToken = objectMapper.readTree(refresh.getResponse().getContentAsString()).get("token").asText();
+        String rotated = objectMapper.readTree(refresh.getResponse().getContentAsString()).get("refreshToken").asText();
+        assertThat(rotated).isNotEqualTo(refreshToken);
+        assertThat(refreshTokenRepository.count()).isEqualTo(1);
+
+        // The new access token is accepted
+        mockMvc.perform(get("/api/user/" + user.getId())
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("refresh@test.com"));
+
+        // The consumed refresh token cannot be replayed
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testRefreshWithUnknownToken() throws Exception {
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken("unknown");
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Error: Refresh token is invalid or expired"));
+    }
+
+    @Test
+    public void testLoginRehashesPasswordWithLowerCost() throws Exception {
+        User user = userRepository.save(User.builder()
+                .email("legacy@test.com")
+                .firstName("Legacy")
+                .lastName("User")
+                .password(new BCryptPasswordEncoder(4).encode("password"))
+                .admin(false)
+                .build());
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("legacy@test.com");
+        loginRequest.setPassword("password");
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk());
+
+        // The stored hash was moved to the configured cost and still verifies
+        String rehashed = userRepository.findById(user.getId()).get().getPassword();
+        assertThat(rehashed).startsWith("$2a$10$");
+        assertThat(passwordEncoder.matches("password", rehashed)).isTrue();
+    }
 }
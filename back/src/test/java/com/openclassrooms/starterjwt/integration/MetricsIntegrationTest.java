@@ -0,0 +1,155 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for the metrics surface
+ * Drives a login, an authenticated read and a booking, then checks the Prometheus scrape
+ * carries the auth, booking and mapper timers with their histogram buckets, and that health is
+ * public while metrics are for administrators only
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        cleanup();
+        user = userRepository.save(User.builder()
+                .email("member@test.com")
+                .firstName("Mem")
+                .lastName("Ber")
+                .password(passwordEncoder.encode("password"))
+                .admin(false)
+                .build());
+        userRepository.save(User.builder()
+                .email("scraper@test.com")
+                .firstName("Prom")
+                .lastName("Etheus")
+                .password(passwordEncoder.encode("password"))
+                .admin(true)
+                .build());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testPrometheusScrape() throws Exception {
+        String token = login("member@test.com");
+        Session session = sessionRepository.save(Session.builder()
+                .name("Scraped")
+                .date(new Date())
+                .description("Metrics")
+                .build());
+
+        mockMvc.perform(get("/api/teacher").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + user.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token + "x"))
+                .andExpect(status().isUnauthorized());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + login("scraper@test.com")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("auth_jwt_validation_seconds_bucket{outcome=\"valid\"")
+                .contains("auth_jwt_validation_seconds_count{outcome=\"bad_signature\"")
+                .contains("auth_filter_seconds_count{outcome=\"verified\"")
+                .contains("auth_filter_seconds_count{outcome=\"cached\"")
+                .contains("auth_filter_seconds_count{outcome=\"rejected\"")
+                .contains("auth_password_hash_seconds_count{operation=\"matches\"")
+                .contains("session_participate_seconds_count{outcome=\"booked\"")
+                .contains("mapper_time_seconds_count{method=\"TeacherMapper.toDto\"")
+                .contains("http_server_requests_seconds_bucket");
+    }
+
+    @Test
+    public void testHealthNeedsNoToken() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+
+    @Test
+    public void testMetricsAreForAdminsOnly() throws Exception {
+        String token = login("member@test.com");
+
+        for (String endpoint : new String[]{"/actuator/prometheus", "/actuator/metrics"}) {
+            mockMvc.perform(get(endpoint))
+                    .andExpect(status().isUnauthorized());
+            mockMvc.perform(get(endpoint).header("Authorization", "Bearer " + token))
+                    .andExpect(status().isForbidden());
+        }
+        mockMvc.perform(get("/actuator/metrics").header("Authorization", "Bearer " + login("scraper@test.com")))
+                .andExpect(status().isOk());
+    }
+
+    private String login(String email) throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail(email);
+        loginRequest.setPassword("password");
+        return objectMapper.readTree(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("token").asText();
+    }
+}
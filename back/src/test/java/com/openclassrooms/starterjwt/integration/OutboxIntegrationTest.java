@@ -0,0 +1,225 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.OutboxEvent;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.OutboxEventRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.services.OutboxRelay;
+import com.openclassrooms.starterjwt.services.SessionEventSink;
+import com.openclassrooms.starterjwt.services.SessionImportService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration test for the session event outbox
+ * Checks that events are written with the change that caused them, relayed
+ * to every sink, and offered again after a sink failure
+ */
+@SpringBootTest
+public class OutboxIntegrationTest {
+
+    @TestConfiguration
+    static class RecordingSinkConfig {
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+
+    static class RecordingSink implements SessionEventSink {
+        private final List<SessionEvent> events = new CopyOnWriteArrayList<>();
+
+        private volatile boolean failing;
+
+        @Override
+        public void publish(List<SessionEvent> batch) {
+            if (failing) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            events.addAll(batch);
+        }
+    }
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionImportService sessionImportService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private RecordingSink recordingSink;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    private Teacher teacher;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+        outboxRelay.relayPending();
+        outboxEventRepository.deleteAll();
+        recordingSink.events.clear();
+        recordingSink.failing = false;
+
+        teacher = teacherRepository.save(Teacher.builder().lastName("Smith").firstName("Jane").build());
+        user = userRepository.save(User.builder()
+                .email("outbox@test.com")
+                .lastName("Doe")
+                .firstName("John")
+                .password("password")
+                .admin(false)
+                .build());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        recordingSink.failing = false;
+        outboxRelay.relayPending();
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+        outboxEventRepository.deleteAll();
+    }
+
+    @Test
+    public void testEveryMutationIsRelayedInOrder() {
+        Session session = sessionService.create(newSession());
+        sessionService.participate(session.getId(), user.getId());
+        sessionService.noLongerParticipate(session.getId(), user.getId());
+        sessionService.update(session.getId(), newSession().setName("Renamed"));
+        sessionService.delete(session.getId());
+
+        outboxRelay.relayPending();
+
+        assertThat(recordingSink.events)
+                .extracting(SessionEvent::getType)
+                .containsExactly(SessionEvent.Type.CREATED, SessionEvent.Type.PARTICIPATED, SessionEvent.Type.LEFT,
+                        SessionEvent.Type.UPDATED, SessionEvent.Type.DELETED);
+        assertThat(recordingSink.events).allMatch(event -> session.getId().equals(event.getSessionId()));
+        assertThat(recordingSink.events.get(1).getUserId()).isEqualTo(user.getId());
+        assertThat(outboxEventRepository.countByPublishedAtIsNull()).isZero();
+    }
+
+    @Test
+    public void testRolledBackChangeRecordsNoEvent() {
+        Session session = newSession().setTeacher(Teacher.builder().id(-1L).build());
+
+        assertThatThrownBy(() -> sessionService.create(session)).isInstanceOf(BadRequestException.class);
+
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @Test
+    public void testImportRecordsOneCreatedEventPerSession() {
+        List<SessionDto> timetable = timetable(SessionImportService.CHUNK_SIZE + 10);
+
+        assertThat(sessionImportService.importSessions(timetable.iterator())).isEqualTo(timetable.size());
+        outboxRelay.relayPending();
+
+        List<Long> sessionIds = sessionRepository.findAll().stream().map(Session::getId).collect(Collectors.toList());
+        assertThat(recordingSink.events).hasSize(timetable.size())
+                .allMatch(event -> event.getType() == SessionEvent.Type.CREATED);
+        assertThat(recordingSink.events)
+                .extracting(SessionEvent::getSessionId)
+                .containsExactlyInAnyOrderElementsOf(sessionIds);
+    }
+
+    @Test
+    public void testRejectedImportRecordsNoEvent() {
+        List<SessionDto> timetable = timetable(SessionImportService.CHUNK_SIZE + 10);
+        timetable.get(SessionImportService.CHUNK_SIZE + 5).setTeacher_id(-1L);
+
+        // The first chunk and its events were flushed before the bad row was reached
+        assertThatThrownBy(() -> sessionImportService.importSessions(timetable.iterator()))
+                .isInstanceOf(BadRequestException.class);
+
+        assertThat(sessionRepository.count()).isZero();
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @Test
+    public void testFailedBatchIsRedeliveredWithTheSameKeys() {
+        recordingSink.failing = true;
+        Session session = sessionService.create(newSession());
+        sessionService.participate(session.getId(), user.getId());
+
+        assertThatThrownBy(() -> outboxRelay.relayPending()).isInstanceOf(IllegalStateException.class);
+        assertThat(outboxEventRepository.countByPublishedAtIsNull()).isEqualTo(2);
+
+        // The relay woken up by the commits may get there first, either way both are delivered once
+        recordingSink.failing = false;
+        outboxRelay.relayPending();
+
+        List<String> keys = recordingSink.events.stream().map(SessionEvent::getEventKey).collect(Collectors.toList());
+        assertThat(keys).hasSize(2).doesNotHaveDuplicates();
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getEventKey)
+                .containsExactlyInAnyOrderElementsOf(keys);
+    }
+
+    private List<SessionDto> timetable(int size) {
+        List<SessionDto> timetable = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            SessionDto sessionDto = new SessionDto();
+            sessionDto.setName("Imported " + i);
+            sessionDto.setDate(new Date());
+            sessionDto.setDescription("Events");
+            sessionDto.setTeacher_id(teacher.getId());
+            timetable.add(sessionDto);
+        }
+        return timetable;
+    }
+
+    private Session newSession() {
+        return Session.builder()
+                .name("Outbox session")
+                .date(new Date())
+                .description("Events")
+                .teacher(teacher)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.PooledBCryptPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for the password hashing pool: once its thread and its queue are taken,
+ * a login is refused with a 503 instead of waiting, and logins go through again once it drains.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "oc.app.passwordHashThreads=1",
+        "oc.app.passwordHashQueueCapacity=1"
+})
+public class PasswordHashingSaturationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    public void setup() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        userRepository.save(User.builder()
+                .email("saturated@test.com")
+                .lastName("Doe")
+                .firstName("John")
+                .password(passwordEncoder.encode("password"))
+                .admin(false)
+                .build());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        callers.shutdownNow();
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testLoginIsRefusedWhileThePoolIsSaturated() throws Exception {
+        PooledBCryptPasswordEncoder pool = (PooledBCryptPasswordEncoder) passwordEncoder;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> pool.encode(new BlockingPassword(started, release)), callers);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> pool.encode("queued"), callers);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(pool.getQueueDepth()).isEqualTo(1);
+
+        try {
+            login().andExpect(status().isServiceUnavailable());
+        } finally {
+            release.countDown();
+        }
+
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        login().andExpect(status().isOk());
+    }
+
+    private ResultActions login() throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("saturated@test.com");
+        loginRequest.setPassword("password");
+
+        return mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)));
+    }
+
+    /** Password that holds the hashing thread until released. */
+    private static final class BlockingPassword implements CharSequence {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        private BlockingPassword(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public String toString() {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "password";
+        }
+
+        @Override
+        public int length() {
+            return 8;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return "password".charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return "password".subSequence(start, end);
+        }
+    }
+}
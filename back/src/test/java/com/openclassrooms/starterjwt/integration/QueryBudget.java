@@ -0,0 +1,38 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.metrics.QueryStats;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MockMvc matchers that fail a request exceeding its JDBC budget, e.g.
+ * {@code mockMvc.perform(get("/api/session")).andExpect(QueryBudget.atMost(3))}.
+ * Counts cover the whole request, security filters included.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> assertThat(stats(result).getStatements())
+                .as("JDBC statements for %s %s (%s)", result.getRequest().getMethod(),
+                        result.getRequest().getRequestURI(), stats(result))
+                .isLessThanOrEqualTo(statements);
+    }
+
+    public static ResultMatcher rowsAtMost(long rows) {
+        return result -> assertThat(stats(result).getRows())
+                .as("rows read for %s %s (%s)", result.getRequest().getMethod(),
+                        result.getRequest().getRequestURI(), stats(result))
+                .isLessThanOrEqualTo(rows);
+    }
+
+    public static QueryStats stats(MvcResult result) {
+        QueryStats stats = (QueryStats) result.getRequest().getAttribute(QueryStats.REQUEST_ATTRIBUTE);
+        assertThat(stats).as("query stats, is QueryStatsFilter registered?").isNotNull();
+        return stats;
+    }
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.starterjwt.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for the scheduler shared by every @Scheduled task
+ * A slow task, such as a key reload or an outbox relay run, must not hold up
+ * the stream heartbeats and sweeps scheduled next to it
+ */
+@SpringBootTest
+public class SchedulingIntegrationTest {
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Test
+    public void testSlowTaskDoesNotHoldUpOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        taskScheduler.schedule(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, new Date());
+        try {
+            taskScheduler.schedule(ran::countDown, new Date());
+
+            assertThat(ran.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize()).isGreaterThan(1);
+        } finally {
+            release.countDown();
+        }
+    }
+}
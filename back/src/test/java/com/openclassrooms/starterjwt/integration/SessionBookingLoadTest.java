@@ -0,0 +1,240 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Load test for the booking engine, through the full HTTP stack
+ * Sends 500 sign-ups for a session with 50 seats from a pool of concurrent
+ * clients, and checks that the class is never overbooked and the overflow
+ * lands on the waitlist.
+ *
+ * The latency budget depends on the machine, so it is only checked on demand:
+ * mvn test -Dtest=SessionBookingLoadTest -Dloadtest=true
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SessionBookingLoadTest {
+
+    private static final int SIGN_UPS = 500;
+
+    private static final int CLIENTS = 16;
+
+    private static final int CAPACITY = 50;
+
+    private static final int WARM_UP_SIGN_UPS = 200;
+
+    /** What a member may wait after pressing "participate", lock wait and queueing included. */
+    private static final long P99_BUDGET_MS = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private Session session;
+    private List<User> users;
+    private String jwtToken;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+
+        Teacher teacher = teacherRepository.save(Teacher.builder()
+                .lastName("Smith")
+                .firstName("Jane")
+                .build());
+
+        session = sessionRepository.save(Session.builder()
+                .name("Popular class")
+                .date(new Date())
+                .description("Opens at 9am sharp")
+                .capacity(CAPACITY)
+                .teacher(teacher)
+                .build());
+
+        users = new ArrayList<>();
+        for (int i = 0; i < SIGN_UPS; i++) {
+            users.add(User.builder()
+                    .email("user" + i + "@test.com")
+                    .lastName("Doe")
+                    .firstName("John")
+                    .password("password")
+                    .admin(false)
+                    .build());
+        }
+        users = userRepository.saveAll(users);
+
+        userRepository.save(User.builder()
+                .email("desk@test.com")
+                .lastName("Front")
+                .firstName("Desk")
+                .password(passwordEncoder.encode("password"))
+                .admin(true)
+                .build());
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("desk@test.com");
+        loginRequest.setPassword("password");
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andReturn();
+        jwtToken = objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    public void testConcurrentBookingsNeverOverbook() throws Exception {
+        bookConcurrentlyAndCheckCapacity();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    public void testBookingLatencyWithinBudget() throws Exception {
+        warmUp();
+
+        List<Long> latencies = bookConcurrentlyAndCheckCapacity();
+
+        Collections.sort(latencies);
+        long p50 = TimeUnit.NANOSECONDS.toMillis(latencies.get(latencies.size() / 2));
+        long p99 = TimeUnit.NANOSECONDS.toMillis(latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1));
+        assertThat(p99)
+                .as("p99 of %d bookings from %d clients (p50=%dms)", SIGN_UPS, CLIENTS, p50)
+                .isLessThanOrEqualTo(P99_BUDGET_MS);
+    }
+
+    private List<Long> bookConcurrentlyAndCheckCapacity() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+
+        List<Long> latencies = bookConcurrently(booked, waitlisted);
+
+        assertThat(booked.get()).isEqualTo(CAPACITY);
+        assertThat(waitlisted.get()).isEqualTo(SIGN_UPS - CAPACITY);
+        assertThat(sessionRepository.countParticipants(session.getId())).isEqualTo(CAPACITY);
+        assertThat(waitlistRepository.count()).isEqualTo(SIGN_UPS - CAPACITY);
+        return latencies;
+    }
+
+    /**
+     * Books and cancels on a session without a capacity, so the measured run starts on compiled
+     * code and warm caches rather than timing class loading and the JIT.
+     */
+    private void warmUp() throws Exception {
+        Session open = sessionRepository.save(Session.builder()
+                .name("Open class")
+                .date(new Date())
+                .description("No seat limit")
+                .teacher(session.getTeacher())
+                .build());
+        for (User user : users.subList(0, WARM_UP_SIGN_UPS)) {
+            mockMvc.perform(post("/api/session/" + open.getId() + "/participate/" + user.getId())
+                    .header("Authorization", "Bearer " + jwtToken));
+            mockMvc.perform(delete("/api/session/" + open.getId() + "/participate/" + user.getId())
+                    .header("Authorization", "Bearer " + jwtToken));
+        }
+    }
+
+    /**
+     * Releases every sign-up at once over the client pool and returns the latency of each, in
+     * nanoseconds. Counts 200 as booked and 202 as waitlisted; any other status fails the run.
+     */
+    private List<Long> bookConcurrently(AtomicInteger booked, AtomicInteger waitlisted) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (User user : users) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                int status = mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + user.getId())
+                                .header("Authorization", "Bearer " + jwtToken))
+                        .andReturn().getResponse().getStatus();
+                latencies.add(System.nanoTime() - begin);
+
+                if (status == HttpStatus.OK.value()) {
+                    booked.incrementAndGet();
+                } else if (status == HttpStatus.ACCEPTED.value()) {
+                    waitlisted.incrementAndGet();
+                } else {
+                    throw new AssertionError("unexpected status " + status + " for user " + user.getId());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,252 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration test for bulk session import and export
+ * Imports a timetable larger than one JDBC batch and streams it back out
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SessionBulkIntegrationTest {
+
+    private static final int SESSIONS = 120;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String jwtToken;
+    private List<Teacher> teachers;
+    private User admin;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        teachers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            teachers.add(teacherRepository.save(Teacher.builder()
+                    .lastName("Teacher" + i)
+                    .firstName("Jane")
+                    .build()));
+        }
+
+        admin = userRepository.save(User.builder()
+                .email("admin@test.com")
+                .lastName("Doe")
+                .firstName("John")
+                .password(passwordEncoder.encode("password"))
+                .admin(true)
+                .build());
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("admin@test.com");
+        loginRequest.setPassword("password");
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        jwtToken = objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    public void testImportThenExport() throws Exception {
+        List<SessionDto> timetable = timetable(SESSIONS);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            mockMvc.perform(post("/api/session/import")
+                            .header("Authorization", "Bearer " + jwtToken)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(timetable)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(SESSIONS));
+
+            // Inserts go out in batches: a handful of statements, not one per session
+            assertThat(statistics.getEntityInsertCount()).isEqualTo(SESSIONS);
+            assertThat(statistics.getPrepareStatementCount()).isLessThan(20);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertThat(sessionRepository.count()).isEqualTo(SESSIONS);
+
+        MvcResult export = mockMvc.perform(get("/api/session/export")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult exported = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode sessions = objectMapper.readTree(exported.getResponse().getContentAsString());
+        assertThat(sessions.isArray()).isTrue();
+        assertThat(sessions.size()).isEqualTo(SESSIONS);
+        assertThat(sessions.get(0).get("name").asText()).isEqualTo("Class 0");
+        assertThat(sessions.get(SESSIONS - 1).get("teacher_id").asLong()).isEqualTo(teachers.get((SESSIONS - 1) % 3).getId());
+    }
+
+    @Test
+    public void testImportRejectsInvalidElement() throws Exception {
+        List<SessionDto> timetable = timetable(60);
+        timetable.get(55).setName("");
+
+        mockMvc.perform(post("/api/session/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(timetable)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(startsWith("Error: session #55: name")));
+
+        // The first chunk was already flushed but is rolled back with the rest
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    public void testImportRejectsUnknownTeacher() throws Exception {
+        List<SessionDto> timetable = timetable(3);
+        timetable.get(1).setTeacher_id(-1L);
+
+        mockMvc.perform(post("/api/session/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(timetable)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: teacher -1 does not exist"));
+
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    public void testImportRejectsUnknownUser() throws Exception {
+        List<SessionDto> timetable = timetable(60);
+        timetable.get(3).setUsers(Collections.singletonList(admin.getId()));
+        timetable.get(57).setUsers(Arrays.asList(admin.getId(), -1L));
+
+        mockMvc.perform(post("/api/session/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(timetable)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: session #57: user -1 does not exist"));
+
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    public void testImportRejectsParticipantsOverCapacity() throws Exception {
+        User other = userRepository.save(User.builder()
+                .email("other@test.com")
+                .lastName("Roe")
+                .firstName("Jane")
+                .password("password")
+                .admin(false)
+                .build());
+        List<SessionDto> timetable = timetable(3);
+        timetable.get(2).setCapacity(1);
+        timetable.get(2).setUsers(Arrays.asList(admin.getId(), other.getId()));
+
+        mockMvc.perform(post("/api/session/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(timetable)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: session #2: 2 participants exceed the capacity of 1"));
+
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    public void testImportRejectsNonArray() throws Exception {
+        mockMvc.perform(post("/api/session/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<SessionDto> timetable(int size) {
+        long start = System.currentTimeMillis();
+        List<SessionDto> timetable = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            SessionDto sessionDto = new SessionDto();
+            sessionDto.setName("Class " + i);
+            sessionDto.setDate(new Date(start + i * 3_600_000L));
+            sessionDto.setDescription("Season timetable");
+            sessionDto.setCapacity(20);
+            sessionDto.setTeacher_id(teachers.get(i % 3).getId());
+            timetable.add(sessionDto);
+        }
+        return timetable;
+    }
+}
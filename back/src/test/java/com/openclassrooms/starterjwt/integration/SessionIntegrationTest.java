@@ -2,13 +2,22 @@ package com.openclassrooms.starterjwt.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.metrics.QueryStatsFilter;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenCache;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.WaitlistPromotionWorker;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,9 +30,16 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -51,16 +67,35 @@ public class SessionIntegrationTest {
     @Autowired
     private TeacherRepository teacherRepository;
 
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private WaitlistPromotionWorker waitlistPromotionWorker;
+
+    @Autowired
+    private AuthTokenCache authTokenCache;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private String jwtToken;
     private User testUser;
     private Teacher testTeacher;
 
     @BeforeEach
     public void setup() throws Exception {
+        // A token issued in the same second to an earlier test's user is byte for byte the same
+        authTokenCache.evictAll();
+
         // Clean database
+        waitlistRepository.deleteAll();
         sessionRepository.deleteAll();
         userRepository.deleteAll();
         teacherRepository.deleteAll();
@@ -99,11 +134,34 @@ public class SessionIntegrationTest {
 
     @AfterEach
     public void cleanup() {
+        waitlistRepository.deleteAll();
         sessionRepository.deleteAll();
         userRepository.deleteAll();
         teacherRepository.deleteAll();
     }
 
+    @Test
+    public void testStreamOpensWithSingleUseTicket() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/session/stream/ticket")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andReturn();
+        String ticket = objectMapper.readTree(result.getResponse().getContentAsString()).get("ticket").asText();
+
+        // A ticket only opens the stream
+        mockMvc.perform(get("/api/session").param("ticket", ticket))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/api/session/stream").param("ticket", ticket).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/session/stream").param("ticket", ticket).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/session/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/session/stream/ticket"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     public void testCompleteSessionFlow() throws Exception {
         // 1. Create a session
@@ -171,6 +229,17 @@ public class SessionIntegrationTest {
         assertThat(sessionWithParticipant.getUsers()).hasSize(1);
         assertThat(sessionWithParticipant.getUsers().get(0).getId()).isEqualTo(testUser.getId());
 
+        // Participant ids are read back without loading users
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].users[0]").value(testUser.getId()));
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+
         // 6. User stops participating
         mockMvc.perform(delete("/api/session/" + sessionId + "/participate/" + testUser.getId())
                         .header("Authorization", "Bearer " + jwtToken))
@@ -211,6 +280,214 @@ public class SessionIntegrationTest {
         mockMvc.perform(post("/api/session/999/participate/" + testUser.getId())
                         .header("Authorization", "Bearer " + jwtToken))
                 .andExpect(status().isNotFound());
+
+        // Test participate twice
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isBadRequest());
+
+        // Test leaving twice
+        mockMvc.perform(delete("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testKeysetPagination() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            sessionRepository.save(Session.builder()
+                    .name("Session " + i)
+                    .date(new Date(1_000_000L * (i + 1)))
+                    .description("Paged")
+                    .teacher(testTeacher)
+                    .build());
+        }
+
+        MvcResult firstPage = mockMvc.perform(get("/api/session")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Session 0"))
+                .andExpect(jsonPath("$[1].name").value("Session 1"))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        mockMvc.perform(get("/api/session")
+                        .param("size", "2")
+                        .param("cursor", firstPage.getResponse().getHeader("X-Next-Cursor"))
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Session 2"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(get("/api/session")
+                        .param("teacherId", "999")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testListPagesByDefault() throws Exception {
+        for (int i = 0; i <= SessionService.DEFAULT_PAGE_SIZE; i++) {
+            sessionRepository.save(Session.builder()
+                    .name("Session " + i)
+                    .date(new Date(1_000_000L * (i + 1)))
+                    .description("Paged by default")
+                    .teacher(testTeacher)
+                    .build());
+        }
+
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(SessionService.DEFAULT_PAGE_SIZE))
+                .andExpect(header().exists("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testWaitlistPromotion() throws Exception {
+        User otherUser = userRepository.save(User.builder()
+                .email("other@test.com")
+                .lastName("Roe")
+                .firstName("Jane")
+                .password(passwordEncoder.encode("password"))
+                .admin(false)
+                .build());
+
+        Session session = sessionRepository.save(Session.builder()
+                .name("Small class")
+                .date(new Date())
+                .description("One seat only")
+                .capacity(1)
+                .teacher(testTeacher)
+                .build());
+
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + otherUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isAccepted());
+
+        mockMvc.perform(delete("/api/session/" + session.getId() + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+
+        // Promotion happens on the background worker
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sessionRepository.countParticipant(session.getId(), otherUser.getId()) == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(sessionRepository.countParticipant(session.getId(), otherUser.getId())).isEqualTo(1);
+        assertThat(waitlistRepository.count()).isZero();
+    }
+
+    @Test
+    public void testSweepCatchesUpOnLostPromotion() throws Exception {
+        User otherUser = userRepository.save(User.builder()
+                .email("other@test.com")
+                .lastName("Roe")
+                .firstName("Jane")
+                .password("password")
+                .admin(false)
+                .build());
+
+        Session full = sessionRepository.save(Session.builder()
+                .name("Full class")
+                .date(new Date())
+                .description("No seat left")
+                .capacity(1)
+                .teacher(testTeacher)
+                .users(new ArrayList<>(Collections.singletonList(testUser)))
+                .build());
+        waitlistRepository.save(WaitlistEntry.builder().sessionId(full.getId()).userId(otherUser.getId()).build());
+
+        // A seat freed without a promotion run, as when the worker failed or the node restarted
+        Session open = sessionRepository.save(Session.builder()
+                .name("Small class")
+                .date(new Date())
+                .description("One seat only")
+                .capacity(1)
+                .teacher(testTeacher)
+                .build());
+        waitlistRepository.save(WaitlistEntry.builder().sessionId(open.getId()).userId(otherUser.getId()).build());
+
+        assertThat(waitlistPromotionWorker.resubmitPromotable()).isEqualTo(1);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sessionRepository.countParticipant(open.getId(), otherUser.getId()) == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(sessionRepository.countParticipant(open.getId(), otherUser.getId())).isEqualTo(1);
+        assertThat(sessionRepository.countParticipant(full.getId(), otherUser.getId())).isZero();
+        assertThat(waitlistPromotionWorker.resubmitPromotable()).isZero();
+    }
+
+    @Test
+    public void testUpdateKeepsParticipantsAndCapacity() throws Exception {
+        User otherUser = userRepository.save(User.builder()
+                .email("other@test.com")
+                .lastName("Roe")
+                .firstName("Jane")
+                .password(passwordEncoder.encode("password"))
+                .admin(false)
+                .build());
+
+        Session session = sessionRepository.save(Session.builder()
+                .name("Small class")
+                .date(new Date())
+                .description("Two seats")
+                .capacity(2)
+                .teacher(testTeacher)
+                .users(new ArrayList<>(Arrays.asList(testUser, otherUser)))
+                .build());
+
+        // What the edit form sends: no capacity and no participants
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Renamed class");
+        sessionDto.setDate(new Date());
+        sessionDto.setTeacher_id(testTeacher.getId());
+        sessionDto.setDescription("Still two seats");
+
+        mockMvc.perform(put("/api/session/" + session.getId())
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed class"))
+                .andExpect(jsonPath("$.capacity").value(2))
+                .andExpect(jsonPath("$.users.length()").value(2));
+
+        assertThat(sessionRepository.countParticipants(session.getId())).isEqualTo(2);
+
+        sessionDto.setCapacity(1);
+        mockMvc.perform(put("/api/session/" + session.getId())
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(sessionRepository.findById(session.getId()).get().getCapacity()).isEqualTo(2);
+
+        mockMvc.perform(put("/api/session/999999")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -223,4 +500,223 @@ public class SessionIntegrationTest {
                         .header("Authorization", "Bearer " + jwtToken))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    public void testMappingCostDoesNotGrowWithParticipants() throws Exception {
+        Session session = sessionRepository.save(Session.builder()
+                .name("Crowded class")
+                .date(new Date())
+                .description("Sixty participants")
+                .teacher(testTeacher)
+                .build());
+
+        List<User> participants = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            participants.add(User.builder()
+                    .email("participant" + i + "@test.com")
+                    .lastName("Doe")
+                    .firstName("John")
+                    .password("password")
+                    .admin(false)
+                    .build());
+        }
+        participants = userRepository.saveAll(participants);
+        List<Long> participantIds = participants.stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Crowded class");
+        sessionDto.setDate(new Date());
+        sessionDto.setDescription("Sixty participants");
+        sessionDto.setTeacher_id(testTeacher.getId());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            // One users query however many participants, none for the teacher
+            sessionDto.setUsers(participantIds.subList(0, 5));
+            statistics.clear();
+            assertThat(sessionMapper.toEntity(sessionDto).getUsers()).hasSize(5);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            sessionDto.setUsers(participantIds);
+            statistics.clear();
+            assertThat(sessionMapper.toEntity(sessionDto).getUsers()).hasSize(60);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            // References only, the database is not touched at all
+            statistics.clear();
+            assertThat(sessionMapper.toReferenceEntity(sessionDto).getUsers()).hasSize(60);
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        // Participants are booked through participate; an edit leaves them as they are
+        session.setUsers(participants);
+        sessionRepository.save(session);
+        sessionDto.setUsers(null);
+
+        mockMvc.perform(put("/api/session/" + session.getId())
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(60));
+
+        assertThat(sessionRepository.countParticipants(session.getId())).isEqualTo(60);
+    }
+
+    @Test
+    public void testCreateWithUnknownTeacher() throws Exception {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Nobody teaches");
+        sessionDto.setDate(new Date());
+        sessionDto.setDescription("Unknown teacher");
+        sessionDto.setTeacher_id(-1L);
+
+        mockMvc.perform(post("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(sessionRepository.count()).isZero();
+    }
+
+    @Test
+    public void testReadsNeverLoadEntities() throws Exception {
+        Session withTeacher = sessionRepository.save(Session.builder()
+                .name("With teacher")
+                .date(new Date(1_000_000L))
+                .description("Read model")
+                .teacher(testTeacher)
+                .users(new ArrayList<>(Collections.singletonList(testUser)))
+                .build());
+        Session withoutTeacher = sessionRepository.save(Session.builder()
+                .name("Without teacher")
+                .date(new Date(2_000_000L))
+                .description("Read model")
+                .build());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            mockMvc.perform(get("/api/session")
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].id").value(withTeacher.getId()))
+                    .andExpect(jsonPath("$[0].teacher_id").value(testTeacher.getId()))
+                    .andExpect(jsonPath("$[0].users[0]").value(testUser.getId()))
+                    .andExpect(jsonPath("$[1].teacher_id").doesNotExist())
+                    .andExpect(jsonPath("$[1].users.length()").value(0));
+
+            mockMvc.perform(get("/api/session/" + withoutTeacher.getId())
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value("Without teacher"));
+
+            // Only the authenticated user is loaded by the security filter
+            assertThat(statistics.getEntityLoadCount()).isLessThanOrEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    public void testConditionalGet() throws Exception {
+        Session session = sessionRepository.save(Session.builder()
+                .name("Polled session")
+                .date(new Date())
+                .description("Conditional GET")
+                .teacher(testTeacher)
+                .build());
+        String url = "/api/session/" + session.getId();
+
+        String eTag = mockMvc.perform(get(url)
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        String listETag = mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(eTag).isNotNull();
+        assertThat(listETag).isNotNull();
+
+        mockMvc.perform(get(url)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", listETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/session")
+                        .param("cursor", "not-a-cursor")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", listETag))
+                .andExpect(status().isBadRequest());
+
+        // A new participant is not a column of the session, yet it changes the representation
+        Thread.sleep(5);
+        mockMvc.perform(post(url + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(url)
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(jsonPath("$.users[0]").value(testUser.getId()));
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .header("If-None-Match", listETag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testQueryBudgets() throws Exception {
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sessions.add(Session.builder()
+                    .name("Budget " + i)
+                    .date(new Date(1_000_000L * (i + 1)))
+                    .description("Query budget")
+                    .teacher(testTeacher)
+                    .users(new ArrayList<>(Collections.singletonList(testUser)))
+                    .build());
+        }
+        Long sessionId = sessionRepository.saveAll(sessions).get(0).getId();
+
+        // Twenty sessions with participants cost the same as one: no statement per session
+        mockMvc.perform(get("/api/session")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(20))
+                .andExpect(QueryBudget.atMost(4))
+                .andExpect(header().exists(QueryStatsFilter.COUNT_HEADER))
+                .andExpect(header().exists(QueryStatsFilter.TIME_HEADER));
+
+        mockMvc.perform(get("/api/session/" + sessionId)
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(3))
+                .andExpect(QueryBudget.rowsAtMost(3));
+
+        mockMvc.perform(delete("/api/session/" + sessionId + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(4));
+
+        mockMvc.perform(post("/api/session/" + sessionId + "/participate/" + testUser.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(7));
+    }
 }
@@ -0,0 +1,143 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.services.SessionQueryService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Allocation budget for the session read path
+ * Checks that a page served from the projection allocates less per returned
+ * session than one served from entities and the mapper, and stays within budget
+ */
+@SpringBootTest
+public class SessionReadModelBenchmarkTest {
+
+    private static final int SESSIONS = 100;
+
+    private static final int PARTICIPANTS = 20;
+
+    private static final int ROUNDS = 20;
+
+    /** 16 KB per session keeps a full page of 100 well under 2 MB of garbage per request. */
+    private static final long PROJECTION_BYTES_PER_SESSION = 16 * 1024;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionQueryService sessionQueryService;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @BeforeEach
+    public void setup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+
+        Teacher teacher = teacherRepository.save(Teacher.builder()
+                .lastName("Smith")
+                .firstName("Jane")
+                .build());
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            users.add(User.builder()
+                    .email("user" + i + "@test.com")
+                    .lastName("Doe")
+                    .firstName("John")
+                    .password("password")
+                    .admin(false)
+                    .build());
+        }
+        users = userRepository.saveAll(users);
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(Session.builder()
+                    .name("Session " + i)
+                    .date(new Date(1_000_000L * (i + 1)))
+                    .description("Benchmark")
+                    .teacher(teacher)
+                    .users(new ArrayList<>(users))
+                    .build());
+        }
+        sessionRepository.saveAll(sessions);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    public void testProjectionAllocatesLessPerSession() {
+        Supplier<List<SessionDto>> entities = () ->
+                sessionMapper.toDto(sessionService.findPage(null, null, null, null, SessionService.MAX_PAGE_SIZE).getContent());
+        Supplier<List<SessionDto>> projection = () ->
+                sessionQueryService.findPage(null, null, null, null, SessionService.MAX_PAGE_SIZE).getContent();
+
+        assertThat(entities.get()).hasSize(SESSIONS);
+        assertThat(projection.get()).usingRecursiveFieldByFieldElementComparatorIgnoringFields("users")
+                .isEqualTo(entities.get());
+
+        long entityBytes = bytesPerSession(entities);
+        long projectionBytes = bytesPerSession(projection);
+
+        assertThat(projectionBytes).isLessThan(entityBytes);
+        assertThat(projectionBytes).isLessThanOrEqualTo(PROJECTION_BYTES_PER_SESSION);
+    }
+
+    private long bytesPerSession(Supplier<List<SessionDto>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up, then measure
+        for (int i = 0; i < ROUNDS; i++) {
+            read.get();
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            read.get();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ((long) ROUNDS * SESSIONS);
+    }
+}
@@ -0,0 +1,154 @@
+package com.openclassrooms.starterjwt.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenCache;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration test for tokens carrying a stateless principal
+ * Checks a refreshed access token carries the same claims as the one issued at login, and that
+ * a revocation made through the database only, with the token cache cleared as another node or
+ * a restart would see it, refuses both the access and the refresh token
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "oc.app.jwtStatelessPrincipal=true")
+public class StatelessTokenIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Autowired
+    private AuthTokenCache authTokenCache;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        cleanup();
+        user = userRepository.save(User.builder()
+                .email("stateless@test.com")
+                .firstName("State")
+                .lastName("Less")
+                .password(passwordEncoder.encode("password"))
+                .admin(false)
+                .build());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void testRefreshedTokenKeepsClaims() throws Exception {
+        String refreshed = objectMapper.readTree(mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest(login().get("refreshToken").asText()))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString()).get("token").asText();
+
+        Claims claims = jwtUtils.parseJwtToken(refreshed);
+
+        assertThat(claims.getSubject()).isEqualTo("stateless@test.com");
+        assertThat(claims.get("id", Number.class).longValue()).isEqualTo(user.getId());
+        assertThat(claims.get("firstName", String.class)).isEqualTo("State");
+        assertThat(claims.get("lastName", String.class)).isEqualTo("Less");
+        assertThat(claims.get("admin", Boolean.class)).isFalse();
+        assertThat(jwtUtils.getTokenVersion(claims)).isZero();
+    }
+
+    @Test
+    public void testRevokedTokensRefusedWithoutLocalState() throws Exception {
+        JsonNode login = login();
+        String accessToken = login.get("token").asText();
+
+        mockMvc.perform(get("/api/user/" + user.getId()).header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+
+        tokenRevocationRegistry.revokeUser(user.getId());
+        authTokenCache.evictAll();
+
+        mockMvc.perform(get("/api/user/" + user.getId()).header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(refreshRequest(login.get("refreshToken").asText()))))
+                .andExpect(status().isUnauthorized());
+
+        // Logging in again picks up the new version
+        mockMvc.perform(get("/api/user/" + user.getId()).header("Authorization", "Bearer " + login().get("token").asText()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testDeletedUserTokenRefusedWithoutLocalState() throws Exception {
+        String accessToken = login().get("token").asText();
+
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteById(user.getId());
+        authTokenCache.evictAll();
+
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private JsonNode login() throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("stateless@test.com");
+        loginRequest.setPassword("password");
+        return objectMapper.readTree(mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private TokenRefreshRequest refreshRequest(String refreshToken) {
+        TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+        refreshRequest.setRefreshToken(refreshToken);
+        return refreshRequest;
+    }
+}
@@ -6,6 +6,8 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +19,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityManagerFactory;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -45,6 +49,9 @@ public class TeacherIntegrationTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private String jwtToken;
     private Teacher teacher1;
     private Teacher teacher2;
@@ -148,4 +155,51 @@ public class TeacherIntegrationTest {
         mockMvc.perform(get("/api/teacher"))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    public void testTeacherReadsAreCachedAndInvalidatedOnWrite() throws Exception {
+        mockMvc.perform(get("/api/teacher")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        // Steady state: the catalog is served without touching the database
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            mockMvc.perform(get("/api/teacher")
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2));
+            mockMvc.perform(get("/api/teacher/" + teacher1.getId())
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/api/teacher/" + teacher1.getId())
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andExpect(status().isOk());
+
+            // The authenticated user is resolved from the token cache, teachers from the catalog cache
+            assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        // A write through JPA empties the cache
+        teacherRepository.save(Teacher.builder()
+                .lastName("Brown")
+                .firstName("Alice")
+                .build());
+        teacher1.setLastName("Renamed");
+        teacherRepository.save(teacher1);
+
+        mockMvc.perform(get("/api/teacher")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3));
+        mockMvc.perform(get("/api/teacher/" + teacher1.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Renamed"));
+    }
 }
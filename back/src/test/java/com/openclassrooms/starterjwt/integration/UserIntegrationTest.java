@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenCache;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,13 +40,17 @@ public class UserIntegrationTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private AuthTokenCache authTokenCache;
+
     private String jwtToken;
     private User testUser;
 
     @BeforeEach
     public void setup() throws Exception {
-        // Clean database
+        // Clean database, and the principals cached for users removed behind UserService's back
         userRepository.deleteAll();
+        authTokenCache.evictAll();
 
         // Create test user
         testUser = User.builder()
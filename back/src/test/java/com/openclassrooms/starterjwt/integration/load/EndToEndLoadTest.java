@@ -0,0 +1,267 @@
+package com.openclassrooms.starterjwt.integration.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.services.TeacherCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * End-to-end load test through the full stack, security filters included
+ * Seeds the H2 test database from SeedDataGenerator, then runs login, list, detail,
+ * teacher and participate storms one at a time and finally a mix of all of them.
+ * Prints p50/p95/p99 latency, throughput and JDBC statements per request for each endpoint.
+ *
+ * Too slow for every build, so it only runs on demand:
+ * mvn test -Dtest=EndToEndLoadTest -Dloadtest=true [-Dloadtest.users=1000 -Dloadtest.threads=16 ...]
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+// Room for every load thread's hash, so the login storm measures latency rather than shedding
+@TestPropertySource(properties = "oc.app.passwordHashQueueCapacity=${loadtest.threads:16}")
+public class EndToEndLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 1000);
+
+    private static final int TEACHERS = Integer.getInteger("loadtest.teachers", 50);
+
+    private static final int SESSIONS = Integer.getInteger("loadtest.sessions", 500);
+
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 16);
+
+    private static final int LOGINS = Math.min(USERS, Integer.getInteger("loadtest.logins", 200));
+
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 1000);
+
+    /** Sessions the participate storm concentrates on, so they fill up and overflow to the waitlist. */
+    private static final int HOT_SESSIONS = Math.min(SESSIONS, Integer.getInteger("loadtest.hotSessions", 5));
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final Path SEED_FILE = Paths.get("target", "loadtest-seed.sql");
+
+    private static final Path REPORT_FILE = Paths.get("target", "loadtest-report.txt");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TeacherCache teacherCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private final LoadReport report = new LoadReport();
+
+    /** Access tokens of the users that logged in, indexed like the seeded users. */
+    private String[] tokens;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        deleteAll();
+
+        new SeedDataGenerator(USERS, TEACHERS, SESSIONS, 42L)
+                .write(SEED_FILE, passwordEncoder.encode(SeedDataGenerator.PASSWORD));
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new FileSystemResource(SEED_FILE));
+        }
+        teacherCache.evictAll();
+
+        tokens = new String[LOGINS];
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        statistics.setStatisticsEnabled(false);
+        deleteAll();
+        teacherCache.evictAll();
+    }
+
+    @Test
+    public void testMixedLoad() throws Exception {
+        run("login", LOGINS, i -> login(report.phase("login"), i));
+        run("list", REQUESTS, i -> list(report.phase("list")));
+        run("detail", REQUESTS, i -> detail(report.phase("detail")));
+        run("teachers", REQUESTS, i -> teachers(report.phase("teachers")));
+        run("participate", REQUESTS, i -> participate(report.phase("participate")));
+        run("mixed", REQUESTS, i -> {
+            LoadReport.Phase phase = report.phase("mixed");
+            int pick = ThreadLocalRandom.current().nextInt(100);
+            if (pick < 5) {
+                login(phase, ThreadLocalRandom.current().nextInt(LOGINS));
+            } else if (pick < 60) {
+                list(phase);
+            } else if (pick < 80) {
+                detail(phase);
+            } else if (pick < 90) {
+                teachers(phase);
+            } else {
+                participate(phase);
+            }
+        });
+
+        String table = report.format();
+        System.out.printf("End-to-end load: %d users, %d teachers, %d sessions, %d threads%n%s",
+                USERS, TEACHERS, SESSIONS, THREADS, table);
+        Files.write(REPORT_FILE, table.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(report.getErrors()).isZero();
+        assertThat(report.phase("login").endpoint("POST /api/auth/login").getRejected()).isZero();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from SESSIONS s where s.capacity < "
+                + "(select count(*) from PARTICIPATE p where p.session_id = s.id)", Long.class)).isZero();
+    }
+
+    private void run(String phaseName, int requests, Request request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                request.send(index);
+                return null;
+            }));
+        }
+
+        statistics.clear();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        report.phase(phaseName).complete(System.nanoTime() - begin, statistics.getPrepareStatementCount());
+        executor.shutdown();
+    }
+
+    private void login(LoadReport.Phase phase, int index) throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail(SeedDataGenerator.email(index));
+        loginRequest.setPassword(SeedDataGenerator.PASSWORD);
+
+        MvcResult result = send(phase.endpoint("POST /api/auth/login"), post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)));
+        if (result != null && result.getResponse().getStatus() == 200) {
+            JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+            tokens[index] = body.get("token").asText();
+        }
+    }
+
+    private void list(LoadReport.Phase phase) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(100) < 30) {
+            send(phase.endpoint("GET /api/session?teacherId"), authorized(get("/api/session")
+                    .param("size", String.valueOf(PAGE_SIZE))
+                    .param("teacherId", String.valueOf(SeedDataGenerator.teacherId(random.nextInt(TEACHERS))))));
+        } else {
+            send(phase.endpoint("GET /api/session"), authorized(get("/api/session")
+                    .param("size", String.valueOf(PAGE_SIZE))));
+        }
+    }
+
+    private void detail(LoadReport.Phase phase) {
+        long sessionId = SeedDataGenerator.sessionId(ThreadLocalRandom.current().nextInt(SESSIONS));
+        send(phase.endpoint("GET /api/session/{id}"), authorized(get("/api/session/" + sessionId)));
+    }
+
+    private void teachers(LoadReport.Phase phase) {
+        send(phase.endpoint("GET /api/teacher"), authorized(get("/api/teacher")));
+    }
+
+    /** A logged-in user signs up to one of the hot sessions; already booked users get a 400. */
+    private void participate(LoadReport.Phase phase) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(LOGINS);
+        long sessionId = SeedDataGenerator.sessionId(random.nextInt(HOT_SESSIONS));
+        send(phase.endpoint("POST /api/session/{id}/participate"), authorized(
+                post("/api/session/" + sessionId + "/participate/" + SeedDataGenerator.userId(user)), user));
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+        return authorized(request, ThreadLocalRandom.current().nextInt(LOGINS));
+    }
+
+    private MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request, int user) {
+        return request.header("Authorization", "Bearer " + tokens[user]);
+    }
+
+    private MvcResult send(LoadReport.Endpoint endpoint, RequestBuilder request) {
+        long begin = System.nanoTime();
+        try {
+            MvcResult result = mockMvc.perform(request).andReturn();
+            endpoint.record(System.nanoTime() - begin, result.getResponse().getStatus());
+            return result;
+        } catch (Exception e) {
+            endpoint.recordFailure(System.nanoTime() - begin);
+            return null;
+        }
+    }
+
+    private void deleteAll() {
+        for (String table : new String[]{"OUTBOX_EVENTS", "WAITLIST", "PARTICIPATE", "SESSIONS", "REFRESH_TOKENS", "USERS", "TEACHERS"}) {
+            jdbcTemplate.update("delete from " + table);
+        }
+    }
+
+    /** One request of a phase, given its index within the phase. */
+    @FunctionalInterface
+    private interface Request {
+        void send(int index) throws Exception;
+    }
+}
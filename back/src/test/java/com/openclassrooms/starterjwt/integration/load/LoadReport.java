@@ -0,0 +1,171 @@
+package com.openclassrooms.starterjwt.integration.load;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency, throughput and database statements per scenario and endpoint of a load run
+ * Statements are counted per phase, so a phase that drives a single endpoint gives
+ * that endpoint's statements per request.
+ */
+public class LoadReport {
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    public synchronized Phase phase(String name) {
+        return phases.computeIfAbsent(name, Phase::new);
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return new ArrayList<>(phases.values());
+    }
+
+    /** Total of 5xx answers and requests that failed before answering. */
+    public synchronized long getErrors() {
+        long errors = 0;
+        for (Phase phase : phases.values()) {
+            for (Endpoint endpoint : phase.getEndpoints()) {
+                errors += endpoint.getErrors();
+            }
+        }
+        return errors;
+    }
+
+    public synchronized String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-12s %-36s %8s %6s %8s %9s %9s %9s %9s %9s %10s%n",
+                "phase", "endpoint", "requests", "errors", "rejected", "p50 ms", "p95 ms", "p99 ms", "max ms", "req/s", "stmts/req"));
+        for (Phase phase : phases.values()) {
+            for (Endpoint endpoint : phase.getEndpoints()) {
+                long[] latencies = endpoint.sortedLatencies();
+                out.append(String.format("%-12s %-36s %8d %6d %8d %9.2f %9.2f %9.2f %9.2f %9.1f %10s%n",
+                        phase.name, endpoint.name, latencies.length, endpoint.getErrors(), endpoint.getRejected(),
+                        millis(percentile(latencies, 50)), millis(percentile(latencies, 95)),
+                        millis(percentile(latencies, 99)), millis(percentile(latencies, 100)),
+                        perSecond(latencies.length, phase.elapsedNanos),
+                        phase.endpoints.size() == 1 ? String.format("%.2f", phase.statementsPerRequest()) : "-"));
+            }
+            if (phase.endpoints.size() > 1) {
+                out.append(String.format("%-12s %-36s %8d %6s %8s %9s %9s %9s %9s %9.1f %10.2f%n",
+                        phase.name, "(all)", phase.getRequests(), "", "", "", "", "", "",
+                        perSecond(phase.getRequests(), phase.elapsedNanos), phase.statementsPerRequest()));
+            }
+        }
+        return out.toString();
+    }
+
+    /** Nearest-rank percentile of sorted latencies, 0 when there are none. */
+    static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double perSecond(long requests, long elapsedNanos) {
+        return elapsedNanos == 0 ? 0 : requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /** One scenario run; elapsed time and statements are recorded once it completes. */
+    public static final class Phase {
+        private final String name;
+        private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        private long elapsedNanos;
+        private long statements;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized Endpoint endpoint(String name) {
+            return endpoints.computeIfAbsent(name, Endpoint::new);
+        }
+
+        public synchronized List<Endpoint> getEndpoints() {
+            return new ArrayList<>(endpoints.values());
+        }
+
+        public synchronized void complete(long elapsedNanos, long statements) {
+            this.elapsedNanos = elapsedNanos;
+            this.statements = statements;
+        }
+
+        public synchronized long getRequests() {
+            long requests = 0;
+            for (Endpoint endpoint : endpoints.values()) {
+                requests += endpoint.getRequests();
+            }
+            return requests;
+        }
+
+        public synchronized double statementsPerRequest() {
+            long requests = getRequests();
+            return requests == 0 ? 0 : (double) statements / requests;
+        }
+    }
+
+    /** Latencies and outcomes of the requests sent to one endpoint within a phase. */
+    public static final class Endpoint {
+        private final String name;
+        private long[] latencies = new long[256];
+        private int requests;
+        private long errors;
+        private long rejected;
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Records one answered request; 4xx are expected rejections, 5xx are errors. */
+        public synchronized void record(long latencyNanos, int status) {
+            if (requests == latencies.length) {
+                latencies = Arrays.copyOf(latencies, requests * 2);
+            }
+            latencies[requests++] = latencyNanos;
+            if (status >= 500) {
+                errors++;
+            } else if (status >= 400) {
+                rejected++;
+            }
+        }
+
+        public synchronized void recordFailure(long latencyNanos) {
+            record(latencyNanos, 500);
+        }
+
+        public synchronized int getRequests() {
+            return requests;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+
+        public synchronized long getRejected() {
+            return rejected;
+        }
+
+        public synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, requests);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
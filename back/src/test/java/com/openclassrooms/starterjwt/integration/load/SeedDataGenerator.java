@@ -0,0 +1,168 @@
+package com.openclassrooms.starterjwt.integration.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Seed data for the load tests, written as SQL against the tables of ressources/sql/script.sql
+ * The same file loads into the H2 test database and into MySQL after script.sql.
+ * Ids start at ID_OFFSET so they never meet the auto increment and sequence ranges used by the application.
+ * Everyone shares one password hash, hashing thousands of passwords would dominate the run.
+ */
+public class SeedDataGenerator {
+
+    public static final long ID_OFFSET = 100_000L;
+
+    public static final String PASSWORD = "loadtest!";
+
+    private static final int ROWS_PER_INSERT = 500;
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final int users;
+    private final int teachers;
+    private final int sessions;
+    private final long randomSeed;
+
+    public SeedDataGenerator(int users, int teachers, int sessions, long randomSeed) {
+        if (users < 1 || teachers < 1 || sessions < 1) {
+            throw new IllegalArgumentException("users, teachers and sessions must be positive");
+        }
+        this.users = users;
+        this.teachers = teachers;
+        this.sessions = sessions;
+        this.randomSeed = randomSeed;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getTeachers() {
+        return teachers;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public static long userId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public static long teacherId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public static long sessionId(int index) {
+        return ID_OFFSET + index;
+    }
+
+    public static String email(int index) {
+        return "load.user" + index + "@test.com";
+    }
+
+    /**
+     * Writes the seed script; passwordHash is stored for every user and must match PASSWORD
+     * under the encoder of the target application.
+     */
+    public void write(Writer out, String passwordHash) throws IOException {
+        Random random = new Random(randomSeed);
+        LocalDateTime firstDay = LocalDateTime.of(2030, 1, 1, 7, 0);
+
+        out.write("-- Load test seed: " + users + " users, " + teachers + " teachers, " + sessions + " sessions\n");
+
+        Rows rows = new Rows(out, "INSERT INTO `TEACHERS` (`id`, `last_name`, `first_name`, `created_at`, `updated_at`) VALUES");
+        for (int i = 0; i < teachers; i++) {
+            rows.add(teacherId(i) + ", 'Teacher" + i + "', 'Load', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP");
+        }
+        rows.close();
+
+        rows = new Rows(out, "INSERT INTO `USERS` (`id`, `last_name`, `first_name`, `admin`, `email`, `password`, `created_at`, `updated_at`) VALUES");
+        for (int i = 0; i < users; i++) {
+            rows.add(userId(i) + ", 'User" + i + "', 'Load', false, '" + email(i) + "', '" + passwordHash
+                    + "', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP");
+        }
+        rows.close();
+
+        int[] capacities = new int[sessions];
+        rows = new Rows(out, "INSERT INTO `SESSIONS` (`id`, `name`, `description`, `capacity`, `date`, `teacher_id`, `created_at`, `updated_at`) VALUES");
+        for (int i = 0; i < sessions; i++) {
+            capacities[i] = 10 + random.nextInt(21);
+            String date = firstDay.plusHours(i * 3L).format(TIMESTAMP);
+            rows.add(sessionId(i) + ", 'Session " + i + "', 'Generated for load tests', " + capacities[i]
+                    + ", '" + date + "', " + teacherId(random.nextInt(teachers)) + ", CURRENT_TIMESTAMP, CURRENT_TIMESTAMP");
+        }
+        rows.close();
+
+        // Each session starts up to half full, leaving seats for the participate scenarios
+        rows = new Rows(out, "INSERT INTO `PARTICIPATE` (`user_id`, `session_id`) VALUES");
+        for (int i = 0; i < sessions; i++) {
+            int participants = Math.min(users, random.nextInt(capacities[i] / 2 + 1));
+            int first = random.nextInt(users);
+            for (int p = 0; p < participants; p++) {
+                rows.add(userId((first + p) % users) + ", " + sessionId(i));
+            }
+        }
+        rows.close();
+    }
+
+    public Path write(Path file, String passwordHash) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(out, passwordHash);
+        }
+        return file;
+    }
+
+    /**
+     * Generates a seed file for a MySQL database created from script.sql
+     * Arguments: output file, users, teachers, sessions and a BCrypt hash of PASSWORD.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("Usage: SeedDataGenerator <output.sql> <users> <teachers> <sessions> <bcrypt hash of " + PASSWORD + ">");
+            System.exit(2);
+        }
+        SeedDataGenerator generator = new SeedDataGenerator(
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), 42L);
+        System.out.println("Seed written to " + generator.write(Paths.get(args[0]), args[4]));
+    }
+
+    /** Multi-row INSERT, split every ROWS_PER_INSERT rows to keep statements small. */
+    private static final class Rows {
+        private final Writer out;
+        private final String insert;
+        private int count;
+
+        private Rows(Writer out, String insert) {
+            this.out = out;
+            this.insert = insert;
+        }
+
+        private void add(String values) throws IOException {
+            out.write(count % ROWS_PER_INSERT == 0 ? insert + "\n  (" : ",\n  (");
+            out.write(values);
+            out.write(')');
+            count++;
+            if (count % ROWS_PER_INSERT == 0) {
+                out.write(";\n");
+            }
+        }
+
+        private void close() throws IOException {
+            if (count % ROWS_PER_INSERT != 0) {
+                out.write(";\n");
+            }
+        }
+    }
+}
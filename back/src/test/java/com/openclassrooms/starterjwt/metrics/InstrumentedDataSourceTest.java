@@ -0,0 +1,149 @@
+package com.openclassrooms.starterjwt.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for InstrumentedDataSource, QueryMetrics and QueryStatsFilter
+ */
+public class InstrumentedDataSourceTest {
+
+    private SimpleMeterRegistry registry;
+
+    private QueryMetrics queryMetrics;
+
+    private JdbcDataSource h2;
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        registry = new SimpleMeterRegistry();
+        queryMetrics = new QueryMetrics();
+        queryMetrics.bindTo(registry);
+
+        h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:instrumented;DB_CLOSE_DELAY=-1");
+        dataSource = new InstrumentedDataSource(h2, () -> queryMetrics);
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table ITEMS (id int primary key)");
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        QueryTracker.end();
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("drop table ITEMS");
+        }
+    }
+
+    @Test
+    public void testCountsStatementsRowsAndTime() throws Exception {
+        QueryStats stats = QueryTracker.begin();
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement("insert into ITEMS (id) values (?)")) {
+                for (int i = 0; i < 3; i++) {
+                    insert.setInt(1, i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            String previous = QueryTracker.enterRepository("ItemRepository.findAll");
+            try (PreparedStatement select = connection.prepareStatement("select id from ITEMS");
+                 ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    assertThat(resultSet.getInt(1)).isBetween(0, 2);
+                }
+            } finally {
+                QueryTracker.exitRepository(previous);
+            }
+        }
+
+        assertThat(stats.getStatements()).isEqualTo(2);
+        assertThat(stats.getRows()).isEqualTo(3);
+        assertThat(stats.getNanos()).isPositive();
+        assertThat(registry.get("db.statements").tag("repository", QueryTracker.NONE).timer().count()).isEqualTo(1);
+        assertThat(registry.get("db.statements").tag("repository", "ItemRepository.findAll").timer().count()).isEqualTo(1);
+        assertThat(registry.get("db.rows").tag("repository", "ItemRepository.findAll").counter().count()).isEqualTo(3.0);
+        assertThat(QueryTracker.currentRepository()).isEqualTo(QueryTracker.NONE);
+    }
+
+    @Test
+    public void testOuterRepositoryKeepsTheLabel() {
+        String outer = QueryTracker.enterRepository("SessionRepository.findAll");
+        String inner = QueryTracker.enterRepository("TeacherRepository.findById");
+
+        assertThat(QueryTracker.currentRepository()).isEqualTo("SessionRepository.findAll");
+
+        QueryTracker.exitRepository(inner);
+        assertThat(QueryTracker.currentRepository()).isEqualTo("SessionRepository.findAll");
+        QueryTracker.exitRepository(outer);
+        assertThat(QueryTracker.currentRepository()).isEqualTo(QueryTracker.NONE);
+    }
+
+    @Test
+    public void testUnwrapsToThePool() throws Exception {
+        assertThat(dataSource.isWrapperFor(JdbcDataSource.class)).isTrue();
+        assertThat(dataSource.unwrap(JdbcDataSource.class)).isSameAs(h2);
+    }
+
+    @Test
+    public void testFilterRecordsRequestAgainstHandler() throws Exception {
+        QueryStatsFilter filter = new QueryStatsFilter(queryMetrics, true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/items");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(this, InstrumentedDataSourceTest.class.getMethod("testFilterRecordsRequestAgainstHandler")));
+
+        filter.doFilter(request, response, (req, res) -> {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.executeQuery("select count(*) from ITEMS").close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            res.getWriter().write("[]");
+            res.flushBuffer();
+        });
+
+        QueryStats stats = (QueryStats) request.getAttribute(QueryStats.REQUEST_ATTRIBUTE);
+        assertThat(stats.getStatements()).isEqualTo(1);
+        assertThat(response.getHeader(QueryStatsFilter.COUNT_HEADER)).isEqualTo("1");
+        assertThat(response.getHeader(QueryStatsFilter.ROWS_HEADER)).isEqualTo("0");
+        assertThat(response.getHeader(QueryStatsFilter.TIME_HEADER)).isNotEmpty();
+        String handler = "InstrumentedDataSourceTest.testFilterRecordsRequestAgainstHandler";
+        assertThat(registry.get("db.request.statements").tag("handler", handler).summary().totalAmount()).isEqualTo(1.0);
+        assertThat(registry.get("db.request.time").tag("handler", handler).timer().totalTime(TimeUnit.NANOSECONDS))
+                .isEqualTo(stats.getNanos());
+        assertThat(QueryTracker.current()).isNull();
+    }
+
+    @Test
+    public void testFilterWithoutHeader() throws Exception {
+        QueryStatsFilter filter = new QueryStatsFilter(queryMetrics, false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/unknown");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> { });
+
+        assertThat(response.getHeader(QueryStatsFilter.COUNT_HEADER)).isNull();
+        assertThat(registry.get("db.request.statements").tag("handler", QueryTracker.NONE).summary().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for PooledBCryptPasswordEncoder
+ */
+public class PooledBCryptPasswordEncoderTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private PooledBCryptPasswordEncoder encoder;
+
+    @AfterEach
+    public void cleanup() {
+        encoder.close();
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void testEncodeAndMatches() {
+        encoder = new PooledBCryptPasswordEncoder(4, 2, 10);
+
+        String hash = encoder.encode("password");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(encoder.matches("password", hash)).isTrue();
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+    }
+
+    @Test
+    public void testHashingIsTimed() {
+        encoder = new PooledBCryptPasswordEncoder(4, 1, 10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        encoder.matches("password", encoder.encode("password"));
+
+        assertThat(registry.get("auth.password.hash").tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.password.hash").tag("operation", "matches").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUpgradeEncodingOnlyForLowerCost() {
+        encoder = new PooledBCryptPasswordEncoder(6, 1, 10);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password"))).isFalse();
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        encoder = new PooledBCryptPasswordEncoder(4, 1, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode(new BlockingPassword(started, release)), callers);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("queued"), callers);
+        waitForQueueDepth(1);
+
+        assertThat(registry.get("auth.password.queue.depth").gauge().value()).isEqualTo(1.0);
+        assertThatThrownBy(() -> encoder.encode("rejected")).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).startsWith("$2a$04$");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).startsWith("$2a$04$");
+        assertThat(encoder.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void testHashingFailureReachesTheCaller() {
+        encoder = new PooledBCryptPasswordEncoder(4, 1, 1);
+
+        assertThatThrownBy(() -> encoder.encode(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testInterruptedCallerGetsServiceUnavailable() {
+        encoder = new PooledBCryptPasswordEncoder(4, 1, 1);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> encoder.encode("password")).isInstanceOf(ServiceUnavailableException.class);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.getQueueDepth() < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /** Password that holds the hashing thread until released. */
+    private static final class BlockingPassword implements CharSequence {
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        private BlockingPassword(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public String toString() {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "password";
+        }
+
+        @Override
+        public int length() {
+            return 8;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return "password".charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return "password".subSequence(start, end);
+        }
+    }
+}
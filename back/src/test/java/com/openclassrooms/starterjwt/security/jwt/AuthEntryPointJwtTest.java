@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for AuthEntryPointJwt
+ */
+public class AuthEntryPointJwtTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AuthFailureLog authFailureLog = new AuthFailureLog();
+
+    private final AuthEntryPointJwt entryPoint = new AuthEntryPointJwt(authFailureLog, objectMapper);
+
+    @Test
+    public void testWritesUnauthorizedEnvelope() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+        request.setServletPath("/api/session");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        entryPoint.commence(request, response, new InsufficientAuthenticationException("Say \"please\""));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertThat(body.get("status").asInt()).isEqualTo(401);
+        assertThat(body.get("error").asText()).isEqualTo("Unauthorized");
+        assertThat(body.get("message").asText()).isEqualTo("Say \"please\"");
+        assertThat(body.get("path").asText()).isEqualTo("/api/session");
+        assertThat(authFailureLog.flush()).containsEntry("unauthorized", 1L);
+    }
+
+    @Test
+    public void testNullMessage() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        entryPoint.commence(new MockHttpServletRequest(), response, new InsufficientAuthenticationException(null));
+
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertThat(body.get("message").isNull()).isTrue();
+        assertThat(body.get("path").asText()).isEmpty();
+    }
+}
@@ -0,0 +1,38 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for AuthFailureLog
+ */
+public class AuthFailureLogTest {
+
+    private final AuthFailureLog authFailureLog = new AuthFailureLog();
+
+    @Test
+    public void testCountsByReasonUntilFlushed() {
+        for (int i = 0; i < 1000; i++) {
+            authFailureLog.record("expired");
+        }
+        authFailureLog.record("revoked");
+        authFailureLog.record("error", new IllegalStateException("first"));
+        authFailureLog.record("error", new IllegalStateException("second"));
+
+        assertThat(authFailureLog.flush())
+                .containsEntry("expired", 1000L)
+                .containsEntry("revoked", 1L)
+                .containsEntry("error", 2L);
+        assertThat(authFailureLog.flush()).isEmpty();
+    }
+
+    @Test
+    public void testQuietReasonsAreSkipped() {
+        authFailureLog.record("expired");
+        authFailureLog.flush();
+        authFailureLog.record("unauthorized");
+
+        assertThat(authFailureLog.flush()).containsOnlyKeys("unauthorized");
+    }
+}
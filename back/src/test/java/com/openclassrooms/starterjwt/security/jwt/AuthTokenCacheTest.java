@@ -0,0 +1,60 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for AuthTokenCache
+ */
+public class AuthTokenCacheTest {
+
+    private AuthTokenCache authTokenCache;
+
+    private UserDetailsImpl userDetails;
+
+    @BeforeEach
+    public void setup() {
+        authTokenCache = new AuthTokenCache(100, 60_000);
+        userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .password("password")
+                .build();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        authTokenCache.put("token", userDetails, new Date(System.currentTimeMillis() + 60_000));
+
+        assertThat(authTokenCache.get("token")).isSameAs(userDetails);
+        assertThat(authTokenCache.get("other")).isNull();
+    }
+
+    @Test
+    public void testExpiredTokenIsNotServed() {
+        authTokenCache.put("token", userDetails, new Date(System.currentTimeMillis() - 1));
+
+        assertThat(authTokenCache.get("token")).isNull();
+    }
+
+    @Test
+    public void testEvictUser() {
+        UserDetailsImpl other = UserDetailsImpl.builder().id(2L).username("other@test.com").build();
+        authTokenCache.put("token1", userDetails, null);
+        authTokenCache.put("token2", userDetails, null);
+        authTokenCache.put("token3", other, null);
+
+        authTokenCache.evictUser(1L);
+
+        assertThat(authTokenCache.get("token1")).isNull();
+        assertThat(authTokenCache.get("token2")).isNull();
+        assertThat(authTokenCache.get("token3")).isSameAs(other);
+    }
+}
@@ -0,0 +1,108 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for JwtKeyRing
+ */
+public class JwtKeyRingTest {
+
+    @TempDir
+    Path keyDir;
+
+    @Test
+    public void testHs512UsesSharedSecret() {
+        JwtKeyRing keyRing = new JwtKeyRing("testSecret", "HS512", "");
+
+        String token = keyRing.sign(Jwts.builder().setSubject("test@test.com")).compact();
+
+        assertThat(keyRing.parser().parseClaimsJws(token).getBody().getSubject()).isEqualTo("test@test.com");
+    }
+
+    @Test
+    public void testRs256SignsWithKid() throws Exception {
+        writeKeyPair("2026-01", rsaKeyPair());
+
+        JwtKeyRing keyRing = new JwtKeyRing("testSecret", "RS256", keyDir.toString());
+        String token = keyRing.sign(Jwts.builder().setSubject("test@test.com")).compact();
+
+        assertThat(keyRing.getActiveKid()).isEqualTo("2026-01");
+        assertThat(keyRing.parser().parseClaimsJws(token).getHeader().getKeyId()).isEqualTo("2026-01");
+        assertThat(keyRing.parser().parseClaimsJws(token).getBody().getSubject()).isEqualTo("test@test.com");
+    }
+
+    @Test
+    public void testEs256VerifyOnlyNode() throws Exception {
+        KeyPair keyPair = ecKeyPair();
+        writeKeyPair("2026-01", keyPair);
+        JwtKeyRing signer = new JwtKeyRing("testSecret", "ES256", keyDir.toString());
+        String token = signer.sign(Jwts.builder().setSubject("test@test.com")).compact();
+
+        Files.delete(keyDir.resolve("2026-01.key.pem"));
+        JwtKeyRing verifier = new JwtKeyRing("testSecret", "ES256", keyDir.toString());
+
+        assertThat(verifier.parser().parseClaimsJws(token).getBody().getSubject()).isEqualTo("test@test.com");
+        assertThatThrownBy(() -> verifier.sign(Jwts.builder())).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testRotationWithoutRestart() throws Exception {
+        writeKeyPair("2026-01", rsaKeyPair());
+        JwtKeyRing keyRing = new JwtKeyRing("testSecret", "RS256", keyDir.toString());
+        String oldToken = keyRing.sign(Jwts.builder().setSubject("old")).compact();
+
+        writeKeyPair("2026-02", rsaKeyPair());
+        keyRing.reload();
+        String newToken = keyRing.sign(Jwts.builder().setSubject("new")).compact();
+
+        assertThat(keyRing.getActiveKid()).isEqualTo("2026-02");
+        assertThat(keyRing.parser().parseClaimsJws(oldToken).getBody().getSubject()).isEqualTo("old");
+        assertThat(keyRing.parser().parseClaimsJws(newToken).getBody().getSubject()).isEqualTo("new");
+
+        // Retiring the old public key invalidates the tokens it signed
+        Files.delete(keyDir.resolve("2026-01.pub.pem"));
+        Files.delete(keyDir.resolve("2026-01.key.pem"));
+        keyRing.reload();
+
+        assertThatThrownBy(() -> keyRing.parser().parseClaimsJws(oldToken)).isInstanceOf(SignatureException.class);
+        assertThat(keyRing.parser().parseClaimsJws(newToken).getBody().getSubject()).isEqualTo("new");
+    }
+
+    private KeyPair rsaKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private KeyPair ecKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private void writeKeyPair(String kid, KeyPair keyPair) throws Exception {
+        writePem(keyDir.resolve(kid + ".pub.pem"), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+        writePem(keyDir.resolve(kid + ".key.pem"), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+    }
+
+    private void writePem(Path file, String type, byte[] der) throws Exception {
+        String pem = "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+        Files.write(file, pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for JwtUtils
+ */
+public class JwtUtilsTest {
+
+    private JwtUtils jwtUtils;
+
+    private AuthFailureLog authFailureLog;
+
+    private UsernamePasswordAuthenticationToken authentication;
+
+    @BeforeEach
+    public void setup() {
+        authFailureLog = new AuthFailureLog();
+        jwtUtils = new JwtUtils(new JwtKeyRing("testSecret", "HS512", ""), authFailureLog);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000);
+
+        UserDetailsImpl userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .admin(true)
+                .tokenVersion(3)
+                .password("password")
+                .build();
+        authentication = new UsernamePasswordAuthenticationToken(userDetails, null);
+    }
+
+    @Test
+    public void testGenerateAndParse() {
+        String token = jwtUtils.generateJwtToken(authentication);
+
+        Claims claims = jwtUtils.parseJwtToken(token);
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("test@test.com");
+        assertThat(jwtUtils.validateJwtToken(token)).isTrue();
+        assertThat(jwtUtils.getUserNameFromJwtToken(token)).isEqualTo("test@test.com");
+    }
+
+    @Test
+    public void testParseInvalidToken() {
+        assertThat(jwtUtils.parseJwtToken("not.a.token")).isNull();
+        assertThat(jwtUtils.parseJwtToken("")).isNull();
+        assertThat(jwtUtils.validateJwtToken("not.a.token")).isFalse();
+    }
+
+    @Test
+    public void testTokenVersionClaim() {
+        Claims claims = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken(authentication));
+
+        assertThat(jwtUtils.getTokenVersion(claims)).isEqualTo(3);
+        claims.remove("ver");
+        assertThat(jwtUtils.getTokenVersion(claims)).isZero();
+    }
+
+    @Test
+    public void testClaimsIgnoredWhenStatelessPrincipalDisabled() {
+        Claims claims = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken(authentication));
+
+        assertThat(claims.get("id")).isNull();
+        assertThat(jwtUtils.getUserDetailsFromClaims(claims)).isNull();
+    }
+
+    @Test
+    public void testStatelessPrincipalFromClaims() {
+        ReflectionTestUtils.setField(jwtUtils, "statelessPrincipal", true);
+
+        Claims claims = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken(authentication));
+        UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+
+        assertThat(userDetails).isNotNull();
+        assertThat(userDetails.getId()).isEqualTo(1L);
+        assertThat(userDetails.getUsername()).isEqualTo("test@test.com");
+        assertThat(userDetails.getFirstName()).isEqualTo("John");
+        assertThat(userDetails.getLastName()).isEqualTo("Doe");
+        assertThat(userDetails.getAdmin()).isTrue();
+        assertThat(userDetails.getTokenVersion()).isEqualTo(3);
+        assertThat(userDetails.getPassword()).isNull();
+    }
+
+    @Test
+    public void testValidationOutcomesAreTimed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        jwtUtils.bindTo(registry);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", -1_000);
+        String expired = jwtUtils.generateJwtToken(authentication);
+
+        jwtUtils.parseJwtToken(expired);
+        jwtUtils.parseJwtToken("not.a.token");
+        jwtUtils.parseJwtToken("");
+        String forged = new JwtUtils(new JwtKeyRing("otherSecret", "HS512", ""), new AuthFailureLog()).generateJwtToken(authentication);
+        jwtUtils.parseJwtToken(forged);
+
+        assertThat(registry.get("auth.jwt.validation").tag("outcome", "expired").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.jwt.validation").tag("outcome", "malformed").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.jwt.validation").tag("outcome", "empty").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.jwt.validation").tag("outcome", "bad_signature").timer().count()).isEqualTo(1);
+        assertThat(authFailureLog.flush())
+                .containsEntry("expired", 1L)
+                .containsEntry("malformed", 1L)
+                .containsEntry("empty", 1L)
+                .containsEntry("bad_signature", 1L)
+                .doesNotContainKey("valid");
+    }
+}
@@ -0,0 +1,134 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RefreshTokenService
+ */
+@ExtendWith(MockitoExtension.class)
+public class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    public void setup() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, tokenRevocationRegistry, 60_000);
+    }
+
+    @Test
+    public void testIssueStoresOnlyTheHash() {
+        String token = refreshTokenService.issue(UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .admin(true)
+                .tokenVersion(2)
+                .build());
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+        assertThat(saved.getTokenHash()).isEqualTo(RefreshTokenService.hash(token)).isNotEqualTo(token).hasSize(64);
+        assertThat(saved.getUserId()).isEqualTo(1L);
+        assertThat(saved.getEmail()).isEqualTo("test@test.com");
+        assertThat(saved.getFirstName()).isEqualTo("John");
+        assertThat(saved.getLastName()).isEqualTo("Doe");
+        assertThat(saved.isAdmin()).isTrue();
+        assertThat(saved.getTokenVersion()).isEqualTo(2);
+        assertThat(saved.getExpiresAt()).isAfter(Instant.now());
+    }
+
+    @Test
+    public void testRotateIssuesSuccessor() {
+        RefreshToken stored = stored(Instant.now().plusSeconds(60));
+        when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("token"))).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("token");
+
+        assertThat(rotation).isNotNull();
+        assertThat(rotation.getRefreshToken()).isNotEqualTo("token");
+        assertThat(rotation.getUserDetails().getId()).isEqualTo(1L);
+        assertThat(rotation.getUserDetails().getUsername()).isEqualTo("test@test.com");
+        assertThat(rotation.getUserDetails().getFirstName()).isEqualTo("John");
+        assertThat(rotation.getUserDetails().getLastName()).isEqualTo("Doe");
+        assertThat(rotation.getUserDetails().getAdmin()).isFalse();
+        assertThat(rotation.getUserDetails().getTokenVersion()).isEqualTo(2);
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertThat(captor.getValue().getFirstName()).isEqualTo("John");
+        assertThat(captor.getValue().getTokenVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRotateUnknownToken() {
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.empty());
+
+        assertThat(refreshTokenService.rotate("token")).isNull();
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    public void testRotateAlreadyConsumedByConcurrentRefresh() {
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(stored(Instant.now().plusSeconds(60))));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(0);
+
+        assertThat(refreshTokenService.rotate("token")).isNull();
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    public void testRotateExpiredToken() {
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(stored(Instant.now().minusSeconds(1))));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(1);
+
+        assertThat(refreshTokenService.rotate("token")).isNull();
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    public void testRotateRevokedUser() {
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(stored(Instant.now().plusSeconds(60))));
+        when(refreshTokenRepository.deleteByIdReturningCount(5L)).thenReturn(1);
+        when(tokenRevocationRegistry.isRevoked(1L, 2)).thenReturn(true);
+
+        assertThat(refreshTokenService.rotate("token")).isNull();
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    private RefreshToken stored(Instant expiresAt) {
+        return RefreshToken.builder()
+                .id(5L)
+                .tokenHash(RefreshTokenService.hash("token"))
+                .userId(1L)
+                .email("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .admin(false)
+                .tokenVersion(2)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
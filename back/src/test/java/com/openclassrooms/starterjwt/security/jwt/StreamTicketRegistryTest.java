@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for StreamTicketRegistry
+ */
+public class StreamTicketRegistryTest {
+
+    private final UserDetailsImpl userDetails = UserDetailsImpl.builder()
+            .id(1L)
+            .username("test@test.com")
+            .build();
+
+    @Test
+    public void testTicketIsRedeemedOnce() {
+        StreamTicketRegistry registry = new StreamTicketRegistry(60_000, 100);
+
+        String ticket = registry.issue(userDetails);
+
+        assertThat(registry.redeem(ticket)).isSameAs(userDetails);
+        assertThat(registry.redeem(ticket)).isNull();
+    }
+
+    @Test
+    public void testTicketsAreUnique() {
+        StreamTicketRegistry registry = new StreamTicketRegistry(60_000, 100);
+
+        assertThat(registry.issue(userDetails)).isNotEqualTo(registry.issue(userDetails));
+        assertThat(registry.redeem("unknown")).isNull();
+    }
+
+    @Test
+    public void testExpiredTicketIsRefused() throws Exception {
+        StreamTicketRegistry registry = new StreamTicketRegistry(1, 100);
+
+        String ticket = registry.issue(userDetails);
+        Thread.sleep(20);
+
+        assertThat(registry.redeem(ticket)).isNull();
+    }
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TokenRevocationRegistry
+ */
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationRegistryTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TokenRevocationRegistry registry;
+
+    @Test
+    public void testCurrentVersionIsAccepted() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(2));
+
+        assertThat(registry.isRevoked(1L, 2)).isFalse();
+    }
+
+    @Test
+    public void testOlderVersionIsRefused() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.of(3));
+
+        assertThat(registry.isRevoked(1L, 2)).isTrue();
+    }
+
+    @Test
+    public void testDeletedUserIsRefused() {
+        when(userRepository.findTokenVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThat(registry.isRevoked(1L, 0)).isTrue();
+    }
+
+    @Test
+    public void testRevokeBumpsTheStoredVersion() {
+        registry.revokeUser(1L);
+
+        verify(userRepository, times(1)).incrementTokenVersion(1L);
+    }
+}
@@ -2,11 +2,12 @@ package com.openclassrooms.starterjwt.security.services;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
- * Unit tests for UserDetailsImpl - focuses on equals() logic
+ * Unit tests for UserDetailsImpl - focuses on equals() and authorities
  */
 public class UserDetailsImplTest {
 
@@ -69,4 +70,20 @@ public class UserDetailsImplTest {
     public void testEquals_DifferentClass() {
         assertThat(userDetails1.equals("string")).isFalse();
     }
+
+    @Test
+    public void testAuthorities_User() {
+        assertThat(userDetails1.isAdmin()).isFalse();
+        assertThat(userDetails1.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER");
+    }
+
+    @Test
+    public void testAuthorities_Admin() {
+        assertThat(userDetails3.isAdmin()).isTrue();
+        assertThat(userDetails3.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER", "ROLE_ADMIN");
+    }
 }
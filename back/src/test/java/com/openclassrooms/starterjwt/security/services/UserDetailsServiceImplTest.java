@@ -15,6 +15,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,6 +62,7 @@ public class UserDetailsServiceImplTest {
         assertThat(userDetailsImpl.getId()).isEqualTo(1L);
         assertThat(userDetailsImpl.getFirstName()).isEqualTo("John");
         assertThat(userDetailsImpl.getLastName()).isEqualTo("Doe");
+        assertThat(userDetailsImpl.isAdmin()).isFalse();
     }
 
     @Test
@@ -73,4 +75,23 @@ public class UserDetailsServiceImplTest {
                 .isInstanceOf(UsernameNotFoundException.class)
                 .hasMessageContaining("User Not Found with email: notfound@test.com");
     }
+
+    @Test
+    public void testUpdatePassword() {
+        UserDetailsImpl current = UserDetailsImpl.builder()
+                .id(1L)
+                .username("test@test.com")
+                .firstName("John")
+                .lastName("Doe")
+                .admin(true)
+                .password("oldHash")
+                .build();
+
+        UserDetails updated = userDetailsService.updatePassword(current, "newHash");
+
+        verify(userRepository).updatePassword(1L, "newHash");
+        assertThat(updated.getPassword()).isEqualTo("newHash");
+        assertThat(updated.getUsername()).isEqualTo("test@test.com");
+        assertThat(((UserDetailsImpl) updated).isAdmin()).isTrue();
+    }
 }
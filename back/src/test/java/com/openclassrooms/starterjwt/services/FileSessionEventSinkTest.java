@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for FileSessionEventSink
+ */
+public class FileSessionEventSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testAppendsOneJsonLinePerEvent() throws Exception {
+        Path file = directory.resolve("events.jsonl");
+        FileSessionEventSink sink = new FileSessionEventSink(new ObjectMapper(), file.toString());
+
+        sink.publish(Arrays.asList(
+                new SessionEvent("k1", SessionEvent.Type.CREATED, 1L, null),
+                new SessionEvent("k2", SessionEvent.Type.PARTICIPATED, 1L, 7L)));
+        sink.publish(Collections.singletonList(new SessionEvent("k3", SessionEvent.Type.DELETED, 1L, null)));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).contains("\"eventKey\":\"k1\"").contains("\"type\":\"CREATED\"");
+        assertThat(lines.get(1)).contains("\"userId\":7");
+        assertThat(lines.get(2)).contains("\"eventKey\":\"k3\"");
+    }
+
+    @Test
+    public void testWriteFailureIsReported() {
+        FileSessionEventSink sink = new FileSessionEventSink(new ObjectMapper(), directory.resolve("missing/events.jsonl").toString());
+
+        assertThatThrownBy(() -> sink.publish(Collections.singletonList(new SessionEvent("k1", SessionEvent.Type.CREATED, 1L, null))))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+}
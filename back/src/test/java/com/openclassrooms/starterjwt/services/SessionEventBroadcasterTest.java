@@ -0,0 +1,198 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for SessionEventBroadcaster
+ */
+public class SessionEventBroadcasterTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    private static final int THREADS = 2;
+
+    /** Every thread that has written to a RecordingEmitter of the current test. */
+    private static final Set<Thread> SENDERS = ConcurrentHashMap.newKeySet();
+
+    private final SessionEventBroadcaster broadcaster = new SessionEventBroadcaster(new ObjectMapper(), BUFFER_SIZE, 60_000, 60_000, THREADS);
+
+    @AfterEach
+    public void cleanup() {
+        broadcaster.shutdown();
+        SENDERS.clear();
+    }
+
+    @Test
+    public void testEventsReachEverySubscriberInOrder() throws Exception {
+        RecordingEmitter first = new RecordingEmitter(3, null);
+        RecordingEmitter second = new RecordingEmitter(3, null);
+        broadcaster.register(first);
+        broadcaster.register(second);
+
+        broadcaster.onSessionEvent(new SessionEvent("k1", SessionEvent.Type.CREATED, 1L, null));
+        broadcaster.onSessionEvent(new SessionEvent("k2", SessionEvent.Type.PARTICIPATED, 1L, 7L));
+        broadcaster.onSessionEvent(new SessionEvent("k3", SessionEvent.Type.DELETED, 1L, null));
+
+        for (RecordingEmitter emitter : new RecordingEmitter[]{first, second}) {
+            assertThat(emitter.received.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(emitter.events).hasSize(3);
+            assertThat(emitter.events.get(0)).contains("id:k1").contains("event:CREATED");
+            assertThat(emitter.events.get(1)).contains("event:PARTICIPATED").contains("\"userId\":7");
+            assertThat(emitter.events.get(2)).contains("event:DELETED");
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberIsDroppedWithoutBlockingOthers() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        broadcaster.bindTo(registry);
+
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(1, release);
+        RecordingEmitter fast = new RecordingEmitter(BUFFER_SIZE * 3, null);
+        broadcaster.register(slow);
+        broadcaster.register(fast);
+
+        long publishNanos = 0;
+        for (int i = 0; i < BUFFER_SIZE * 3; i++) {
+            long begin = System.nanoTime();
+            broadcaster.onSessionEvent(new SessionEvent("k" + i, SessionEvent.Type.UPDATED, (long) i, null));
+            publishNanos += System.nanoTime() - begin;
+
+            // The fast client keeps up, while the slow one stays blocked on its first write
+            assertThat(fast.awaitEvents(i + 1)).isTrue();
+            if (i == 0) {
+                assertThat(slow.received.await(5, TimeUnit.SECONDS)).isTrue();
+            }
+        }
+
+        assertThat(fast.events).hasSize(BUFFER_SIZE * 3);
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+        assertThat(registry.get("session.stream.dropped").counter().count()).isEqualTo(1.0);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(publishNanos)).isLessThan(1_000);
+
+        release.countDown();
+    }
+
+    @Test
+    public void testStalledSubscribersOnlyHoldThePoolUntilTheSweep() throws Exception {
+        SessionEventBroadcaster timed = new SessionEventBroadcaster(new ObjectMapper(), BUFFER_SIZE, 60_000, 50, THREADS);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingEmitter> stalled = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            RecordingEmitter emitter = new RecordingEmitter(1, release);
+            stalled.add(emitter);
+            timed.register(emitter);
+        }
+        RecordingEmitter fast = new RecordingEmitter(1, null);
+        timed.register(fast);
+
+        try {
+            timed.onSessionEvent(new SessionEvent("k1", SessionEvent.Type.CREATED, 1L, null));
+
+            // Every stalled write is interrupted once it outlives the send timeout, which frees
+            // its thread for the next subscriber in line
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (fast.received.getCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(60);
+                timed.expireStalledSends();
+            }
+
+            assertThat(fast.events).hasSize(1);
+            assertThat(SENDERS).hasSizeLessThanOrEqualTo(THREADS);
+        } finally {
+            release.countDown();
+            timed.shutdown();
+        }
+    }
+
+    @Test
+    public void testStalledSendIsInterruptedAndDropped() throws Exception {
+        SessionEventBroadcaster timed = new SessionEventBroadcaster(new ObjectMapper(), BUFFER_SIZE, 60_000, 50, THREADS);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        timed.bindTo(registry);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter stalled = new RecordingEmitter(1, release);
+        RecordingEmitter idle = new RecordingEmitter(1, null);
+        timed.register(stalled);
+
+        try {
+            timed.onSessionEvent(new SessionEvent("k1", SessionEvent.Type.CREATED, 1L, null));
+            assertThat(stalled.received.await(5, TimeUnit.SECONDS)).isTrue();
+            timed.register(idle);
+
+            assertThat(timed.expireStalledSends()).isZero();
+            Thread.sleep(100);
+
+            assertThat(timed.expireStalledSends()).isEqualTo(1);
+            assertThat(stalled.interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(timed.getSubscriberCount()).isEqualTo(1);
+            assertThat(registry.get("session.stream.dropped").counter().count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+            timed.shutdown();
+        }
+    }
+
+    /**
+     * Records each event as its wire text; optionally blocks every write until released.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch received;
+
+        private final CountDownLatch release;
+
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        private RecordingEmitter(int expected, CountDownLatch release) {
+            this.received = new CountDownLatch(expected);
+            this.release = release;
+        }
+
+        private boolean awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return events.size() >= count;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            SENDERS.add(Thread.currentThread());
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                text.append(data.getData());
+            }
+            events.add(text.toString());
+            received.countDown();
+
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
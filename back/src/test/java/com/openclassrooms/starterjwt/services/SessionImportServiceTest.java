@@ -0,0 +1,47 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for SessionImportService
+ */
+public class SessionImportServiceTest {
+
+    @Test
+    public void testDescribeMissingUser() {
+        DataIntegrityViolationException e = new DataIntegrityViolationException("could not execute batch",
+                violation("Cannot add or update a child row: a foreign key constraint fails (`yoga_app`.`PARTICIPATE`, "
+                        + "CONSTRAINT `PARTICIPATE_ibfk_1` FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`))", "PARTICIPATE_ibfk_1"));
+
+        assertThat(SessionImportService.describeViolation(e)).isEqualTo("sessions reference users that do not exist");
+    }
+
+    @Test
+    public void testDescribeMissingTeacher() {
+        PersistenceException e = new PersistenceException(
+                violation("Referential integrity constraint violation: \"FK_TEACHER: PUBLIC.SESSIONS FOREIGN KEY(TEACHER_ID) "
+                        + "REFERENCES PUBLIC.TEACHERS(ID) (7)\"", "FK_TEACHER"));
+
+        assertThat(SessionImportService.describeViolation(e)).isEqualTo("sessions reference teachers that do not exist");
+    }
+
+    @Test
+    public void testDescribeOtherConstraint() {
+        PersistenceException e = new PersistenceException(violation("Duplicate entry '1-2' for key 'PRIMARY'", "PRIMARY"));
+
+        assertThat(SessionImportService.describeViolation(e)).isEqualTo("sessions violate constraint PRIMARY");
+        assertThat(SessionImportService.describeViolation(new PersistenceException("connection lost")))
+                .isEqualTo("sessions could not be written");
+    }
+
+    private static ConstraintViolationException violation(String message, String constraintName) {
+        return new ConstraintViolationException("could not execute statement", new SQLException(message), constraintName);
+    }
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SessionQueryService
+ */
+@ExtendWith(MockitoExtension.class)
+public class SessionQueryServiceTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private SessionService sessionService;
+
+    @InjectMocks
+    private SessionQueryService sessionQueryService;
+
+    @Test
+    public void testFindPageFillsParticipantsInOneQuery() {
+        SessionDto first = new SessionDto(1L, "Yoga", new Date(), 1L, "Morning", null, null, null);
+        SessionDto second = new SessionDto(2L, "Pilates", new Date(), 1L, "Evening", 10, null, null);
+        Date after = new Date(0);
+        when(sessionRepository.findDtoPage(eq(after), eq(7L), isNull(), isNull(), isNull(), eq(PageRequest.of(0, 2))))
+                .thenReturn(new SliceImpl<>(Arrays.asList(first, second), PageRequest.of(0, 2), true));
+        Map<Long, List<Long>> participants = new HashMap<>();
+        participants.put(1L, Arrays.asList(3L, 4L));
+        when(sessionService.findParticipantIds(Arrays.asList(1L, 2L))).thenReturn(participants);
+
+        Slice<SessionDto> page = sessionQueryService.findPage(new SessionCursor(after, 7L), null, null, null, 2);
+
+        assertThat(page.hasNext()).isTrue();
+        assertThat(first.getUsers()).containsExactly(3L, 4L);
+        assertThat(second.getUsers()).isEmpty();
+        verify(sessionService, times(1)).findParticipantIds(anyCollection());
+    }
+
+    @Test
+    public void testFindPageEmpty() {
+        when(sessionRepository.findDtoPage(isNull(), isNull(), isNull(), isNull(), isNull(), any()))
+                .thenReturn(new SliceImpl<>(Collections.emptyList()));
+
+        assertThat(sessionQueryService.findPage(null, null, null, null, null).getContent()).isEmpty();
+        verify(sessionService, never()).findParticipantIds(anyCollection());
+    }
+
+    @Test
+    public void testFindById_Found() {
+        SessionDto sessionDto = new SessionDto(1L, "Yoga", new Date(), 1L, "Morning", null, null, null);
+        when(sessionRepository.findDtoById(1L)).thenReturn(Optional.of(sessionDto));
+        when(sessionService.findParticipantIds(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonMap(1L, Collections.singletonList(5L)));
+
+        assertThat(sessionQueryService.findById(1L).getUsers()).containsExactly(5L);
+    }
+
+    @Test
+    public void testFindById_NotFound() {
+        when(sessionRepository.findDtoById(99L)).thenReturn(Optional.empty());
+
+        assertThat(sessionQueryService.findById(99L)).isNull();
+        verify(sessionService, never()).findParticipantIds(anyCollection());
+    }
+}
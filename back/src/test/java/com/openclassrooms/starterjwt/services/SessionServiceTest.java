@@ -1,29 +1,43 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionCursor;
+import com.openclassrooms.starterjwt.dto.SessionEvent;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.ParticipationStatus;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,23 +49,22 @@ public class SessionServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private WaitlistPromotionWorker waitlistPromotionWorker;
+
+    @Mock
+    private SessionEventOutbox sessionEventOutbox;
+
     @InjectMocks
     private SessionService sessionService;
 
     private Session session;
-    private User user;
 
     @BeforeEach
     public void setup() {
-        user = User.builder()
-                .id(1L)
-                .email("test@test.com")
-                .lastName("Doe")
-                .firstName("John")
-                .password("password")
-                .admin(false)
-                .build();
-
         session = Session.builder()
                 .id(1L)
                 .name("Yoga Session")
@@ -64,14 +77,15 @@ public class SessionServiceTest {
 
     @Test
     public void testCreate() {
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(sessionRepository.saveAndFlush(any(Session.class))).thenReturn(session);
 
         Session created = sessionService.create(session);
 
         assertThat(created).isNotNull();
         assertThat(created.getId()).isEqualTo(1L);
         assertThat(created.getName()).isEqualTo("Yoga Session");
-        verify(sessionRepository, times(1)).save(session);
+        verify(sessionRepository, times(1)).saveAndFlush(session);
+        verify(sessionEventOutbox, times(1)).record(SessionEvent.Type.CREATED, 1L, null);
     }
 
     @Test
@@ -80,6 +94,7 @@ public class SessionServiceTest {
 
         sessionService.delete(1L);
 
+        verify(waitlistRepository, times(1)).deleteBySessionId(1L);
         verify(sessionRepository, times(1)).deleteById(1L);
     }
 
@@ -102,6 +117,31 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).findAll();
     }
 
+    @Test
+    public void testFindPage_ClampsSizeAndAppliesCursor() {
+        SessionCursor cursor = new SessionCursor(new Date(0), 5L);
+        Slice<Session> slice = new SliceImpl<>(Arrays.asList(session));
+        when(sessionRepository.findPage(eq(cursor.getDate()), eq(5L), isNull(), isNull(), eq(1L), any(Pageable.class)))
+                .thenReturn(slice);
+
+        Slice<Session> result = sessionService.findPage(cursor, null, null, 1L, 10_000);
+
+        assertThat(result).isSameAs(slice);
+        verify(sessionRepository).findPage(eq(cursor.getDate()), eq(5L), isNull(), isNull(), eq(1L),
+                eq(PageRequest.of(0, SessionService.MAX_PAGE_SIZE)));
+    }
+
+    @Test
+    public void testFindPage_DefaultSize() {
+        when(sessionRepository.findPage(isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(session)));
+
+        sessionService.findPage(null, null, null, null, null);
+
+        verify(sessionRepository).findPage(isNull(), isNull(), isNull(), isNull(), isNull(),
+                eq(PageRequest.of(0, SessionService.DEFAULT_PAGE_SIZE)));
+    }
+
     @Test
     public void testGetById_Found() {
         when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
@@ -114,87 +154,309 @@ public class SessionServiceTest {
         verify(sessionRepository, times(1)).findById(1L);
     }
 
+    @Test
+    public void testExists() {
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+
+        assertThat(sessionService.exists(1L)).isTrue();
+        verify(sessionRepository, times(1)).existsById(1L);
+    }
+
+    @Test
+    public void testFindParticipantIds_GroupsBySession() {
+        when(sessionRepository.findParticipantIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                new Object[]{1L, 10L},
+                new Object[]{1L, 11L},
+                new Object[]{2L, 10L}));
+
+        Map<Long, List<Long>> participantIds = sessionService.findParticipantIds(Arrays.asList(1L, 2L));
+
+        assertThat(participantIds.get(1L)).containsExactly(10L, 11L);
+        assertThat(participantIds.get(2L)).containsExactly(10L);
+    }
+
+    @Test
+    public void testFindParticipantIds_EmptyInput() {
+        assertThat(sessionService.findParticipantIds(new ArrayList<>())).isEmpty();
+
+        verify(sessionRepository, never()).findParticipantIds(any());
+    }
+
     @Test
     public void testUpdate() {
-        Session updatedSession = Session.builder()
-                .id(1L)
+        session.setCapacity(5);
+        session.getUsers().add(new User().setId(7L));
+        Teacher teacher = Teacher.builder().id(2L).build();
+        Session changes = Session.builder()
                 .name("Updated Yoga Session")
                 .date(new Date())
                 .description("Updated description")
+                .teacher(teacher)
                 .build();
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
 
-        when(sessionRepository.save(any(Session.class))).thenReturn(updatedSession);
-
-        Session result = sessionService.update(1L, updatedSession);
+        Session result = sessionService.update(1L, changes);
 
-        assertThat(result).isNotNull();
-        assertThat(result.getId()).isEqualTo(1L);
         assertThat(result.getName()).isEqualTo("Updated Yoga Session");
-        verify(sessionRepository, times(1)).save(updatedSession);
+        assertThat(result.getDescription()).isEqualTo("Updated description");
+        assertThat(result.getTeacher()).isSameAs(teacher);
+        // Neither sent by the edit form, so both are left as they were
+        assertThat(result.getCapacity()).isEqualTo(5);
+        assertThat(result.getUsers()).hasSize(1);
+        verify(sessionRepository, never()).findForBookingById(anyLong());
+        verify(waitlistPromotionWorker, times(1)).schedule(1L);
+    }
+
+    @Test
+    public void testUpdate_Capacity() {
+        Session changes = Session.builder()
+                .name("Yoga Session")
+                .date(new Date())
+                .description("More seats")
+                .capacity(10)
+                .build();
+        when(sessionRepository.findForBookingById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.countParticipants(1L)).thenReturn(10L);
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
+
+        assertThat(sessionService.update(1L, changes).getCapacity()).isEqualTo(10);
+    }
+
+    @Test
+    public void testUpdate_CapacityBelowParticipants() {
+        session.setCapacity(5);
+        Session changes = Session.builder()
+                .name("Yoga Session")
+                .date(new Date())
+                .description("Fewer seats")
+                .capacity(2)
+                .build();
+        when(sessionRepository.findForBookingById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.countParticipants(1L)).thenReturn(3L);
+
+        assertThatThrownBy(() -> sessionService.update(1L, changes)).isInstanceOf(BadRequestException.class);
+
+        assertThat(session.getCapacity()).isEqualTo(5);
+        verify(sessionRepository, never()).saveAndFlush(any(Session.class));
+        verify(sessionEventOutbox, never()).record(any(), any(), any());
+    }
+
+    @Test
+    public void testUpdate_NotFound() {
+        when(sessionRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> sessionService.update(1L, session)).isInstanceOf(NotFoundException.class);
+
+        verify(sessionRepository, never()).saveAndFlush(any(Session.class));
     }
 
     @Test
     public void testParticipate_Success() {
         when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+
+        assertThat(sessionService.participate(1L, 1L)).isEqualTo(ParticipationStatus.BOOKED);
+
+        verify(sessionRepository, times(1)).addParticipant(1L, 1L);
+        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository, never()).findForBookingById(anyLong());
+
+        verify(sessionEventOutbox, times(1)).record(SessionEvent.Type.PARTICIPATED, 1L, 1L);
+    }
+
+    @Test
+    public void testParticipate_RecordsOutcomes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sessionService.bindTo(registry);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L, 1L);
 
         sessionService.participate(1L, 1L);
+        assertThatThrownBy(() -> sessionService.participate(1L, 1L)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> sessionService.participate(99L, 1L)).isInstanceOf(NotFoundException.class);
 
-        assertThat(session.getUsers()).contains(user);
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(sessionRepository, times(1)).save(session);
+        assertThat(registry.get("session.participate").tag("outcome", "booked").timer().count()).isEqualTo(1);
+        assertThat(registry.get("session.participate").tag("outcome", "already_participating").timer().count()).isEqualTo(1);
+        assertThat(registry.get("session.participate").tag("outcome", "not_found").timer().count()).isEqualTo(1);
     }
 
     @Test
     public void testParticipate_UserNotFound() {
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThatThrownBy(() -> sessionService.participate(1L, 99L))
                 .isInstanceOf(NotFoundException.class);
 
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(99L);
-        verify(sessionRepository, never()).save(any());
+        verify(userRepository, times(1)).existsById(99L);
+        verify(sessionRepository, never()).findById(anyLong());
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testParticipate_SessionNotFound() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> sessionService.participate(99L, 1L))
+                .isInstanceOf(NotFoundException.class);
+
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
     }
 
     @Test
     public void testParticipate_AlreadyParticipating() {
-        session.getUsers().add(user);
         when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(1L);
 
         assertThatThrownBy(() -> sessionService.participate(1L, 1L))
                 .isInstanceOf(BadRequestException.class);
 
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(sessionRepository, never()).save(any());
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
     }
 
     @Test
-    public void testNoLongerParticipate_Success() {
-        session.getUsers().add(user);
+    public void testParticipate_Full() {
+        session.setCapacity(2);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(sessionRepository.countParticipants(1L)).thenReturn(2L);
+
+        assertThat(sessionService.participate(1L, 1L)).isEqualTo(ParticipationStatus.WAITLISTED);
+
+        verify(waitlistRepository, times(1)).save(any(WaitlistEntry.class));
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+        verify(sessionRepository, never()).findForBookingById(anyLong());
+        verify(waitlistPromotionWorker, times(1)).schedule(1L);
+    }
+
+    @Test
+    public void testParticipate_FilledWhileWaitingForLock() {
+        session.setCapacity(2);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.findForBookingById(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(sessionRepository.countParticipants(1L)).thenReturn(1L, 2L);
+
+        assertThat(sessionService.participate(1L, 1L)).isEqualTo(ParticipationStatus.WAITLISTED);
+
+        verify(waitlistRepository, times(1)).save(any(WaitlistEntry.class));
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+        verify(waitlistPromotionWorker, never()).schedule(anyLong());
+    }
+
+    @Test
+    public void testParticipate_ConcurrentWaitlistDuplicate() {
+        session.setCapacity(2);
         when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(sessionRepository.countParticipants(1L)).thenReturn(2L);
+        when(waitlistRepository.save(any(WaitlistEntry.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThatThrownBy(() -> sessionService.participate(1L, 1L))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    public void testParticipate_SeatLeftButOthersWaiting() {
+        session.setCapacity(2);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(sessionRepository.countParticipants(1L)).thenReturn(1L);
+        when(waitlistRepository.existsBySessionId(1L)).thenReturn(true);
+
+        assertThat(sessionService.participate(1L, 1L)).isEqualTo(ParticipationStatus.WAITLISTED);
+
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testParticipate_AlreadyWaiting() {
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(waitlistRepository.existsBySessionIdAndUserId(1L, 1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> sessionService.participate(1L, 1L))
+                .isInstanceOf(BadRequestException.class);
+
+        verify(waitlistRepository, never()).save(any());
+    }
+
+    @Test
+    public void testParticipate_SeatLeft() {
+        session.setCapacity(2);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.findForBookingById(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(sessionRepository.countParticipants(1L)).thenReturn(1L);
+
+        sessionService.participate(1L, 1L);
+
+        verify(sessionRepository, times(1)).findForBookingById(1L);
+        verify(sessionRepository, times(1)).addParticipant(1L, 1L);
+    }
+
+    @Test
+    public void testParticipate_ConcurrentDuplicate() {
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.countParticipant(1L, 1L)).thenReturn(0L);
+        when(sessionRepository.addParticipant(1L, 1L)).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThatThrownBy(() -> sessionService.participate(1L, 1L))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    public void testNoLongerParticipate_Success() {
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
 
         sessionService.noLongerParticipate(1L, 1L);
 
-        assertThat(session.getUsers()).doesNotContain(user);
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(sessionRepository, times(1)).save(session);
+        verify(sessionRepository, times(1)).removeParticipant(1L, 1L);
+        verify(sessionRepository, never()).save(any());
+        verify(waitlistPromotionWorker, times(1)).schedule(1L);
+    }
+
+    @Test
+    public void testNoLongerParticipate_LeavesWaitlist() {
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(0);
+        when(waitlistRepository.deleteBySessionIdAndUserId(1L, 1L)).thenReturn(1);
+
+        sessionService.noLongerParticipate(1L, 1L);
+
+        verify(waitlistPromotionWorker, never()).schedule(anyLong());
+        verify(sessionEventOutbox, never()).record(any(), anyLong(), any());
     }
 
     @Test
     public void testNoLongerParticipate_NotParticipating() {
-        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(0);
 
         assertThatThrownBy(() -> sessionService.noLongerParticipate(1L, 1L))
                 .isInstanceOf(BadRequestException.class);
+    }
 
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(sessionRepository, never()).save(any());
+    @Test
+    public void testNoLongerParticipate_SessionNotFound() {
+        when(sessionRepository.existsById(99L)).thenReturn(false);
+
+        assertThatThrownBy(() -> sessionService.noLongerParticipate(99L, 1L))
+                .isInstanceOf(NotFoundException.class);
+
+        verify(sessionRepository, never()).removeParticipant(anyLong(), anyLong());
     }
 }
@@ -0,0 +1,55 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for TeacherCache
+ */
+public class TeacherCacheTest {
+
+    private final TeacherCache teacherCache = new TeacherCache(100, 60_000);
+
+    private final TeacherDto teacher = new TeacherDto(1L, "Smith", "Jane", null, null);
+
+    @Test
+    public void testHitAndMissMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        teacherCache.bindTo(registry);
+
+        teacherCache.findById(1L, id -> teacher);
+        teacherCache.findById(1L, id -> teacher);
+        teacherCache.findAll(() -> Collections.singletonList(teacher));
+
+        assertThat(registry.get("cache.gets").tag("cache", "teachers").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.gets").tag("cache", "teachers").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.gets").tag("cache", "teachers.all").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void testWriteEvictsEverything() {
+        teacherCache.findById(1L, id -> teacher);
+        teacherCache.findAll(() -> Collections.singletonList(teacher));
+
+        new TeacherCacheInvalidator(teacherCache).onWrite(Teacher.builder().id(1L).build());
+
+        assertThat(teacherCache.getIfPresent(1L)).isNull();
+        assertThat(teacherCache.findAll(Collections::emptyList)).isEmpty();
+    }
+
+    @Test
+    public void testOtherEntityWriteKeepsCache() {
+        teacherCache.findById(1L, id -> teacher);
+
+        new TeacherCacheInvalidator(teacherCache).onWrite(Session.builder().id(1L).build());
+
+        assertThat(teacherCache.getIfPresent(1L)).isSameAs(teacher);
+    }
+}
@@ -1,5 +1,8 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherMapperImpl;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
@@ -23,6 +27,12 @@ public class TeacherServiceTest {
     @Mock
     private TeacherRepository teacherRepository;
 
+    @Spy
+    private TeacherMapper teacherMapper = new TeacherMapperImpl();
+
+    @Spy
+    private TeacherCache teacherCache = new TeacherCache(100, 60_000);
+
     @InjectMocks
     private TeacherService teacherService;
 
@@ -47,7 +57,7 @@ public class TeacherServiceTest {
 
         when(teacherRepository.findAll()).thenReturn(Arrays.asList(teacher, teacher2));
 
-        List<Teacher> teachers = teacherService.findAll();
+        List<TeacherDto> teachers = teacherService.findAll();
 
         assertThat(teachers).hasSize(2);
         assertThat(teachers.get(0).getFirstName()).isEqualTo("Jane");
@@ -61,7 +71,7 @@ public class TeacherServiceTest {
     public void testFindById_Found() {
         when(teacherRepository.findById(1L)).thenReturn(Optional.of(teacher));
 
-        Teacher found = teacherService.findById(1L);
+        TeacherDto found = teacherService.findById(1L);
 
         assertThat(found).isNotNull();
         assertThat(found.getId()).isEqualTo(1L);
@@ -74,9 +84,60 @@ public class TeacherServiceTest {
     public void testFindById_NotFound() {
         when(teacherRepository.findById(anyLong())).thenReturn(Optional.empty());
 
-        Teacher found = teacherService.findById(99L);
+        TeacherDto found = teacherService.findById(99L);
 
         assertThat(found).isNull();
         verify(teacherRepository, times(1)).findById(99L);
     }
+
+    @Test
+    public void testGetReference() {
+        when(teacherRepository.getById(1L)).thenReturn(teacher);
+
+        assertThat(teacherService.getReference(1L)).isSameAs(teacher);
+        verify(teacherRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testFindAll_Cached() {
+        when(teacherRepository.findAll()).thenReturn(Arrays.asList(teacher));
+
+        List<TeacherDto> first = teacherService.findAll();
+        List<TeacherDto> teachers = teacherService.findAll();
+
+        assertThat(teachers).isSameAs(first).isUnmodifiable();
+        assertThat(teachers.get(0).getId()).isEqualTo(1L);
+        verify(teacherRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void testFindById_Cached() {
+        when(teacherRepository.findById(1L)).thenReturn(Optional.of(teacher));
+
+        TeacherDto first = teacherService.findById(1L);
+        TeacherDto found = teacherService.findById(1L);
+
+        assertThat(found).isSameAs(first);
+        verify(teacherRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testFindById_NotFoundIsNotCached() {
+        when(teacherRepository.findById(99L)).thenReturn(Optional.empty());
+
+        teacherService.findById(99L);
+        teacherService.findById(99L);
+
+        verify(teacherRepository, times(2)).findById(99L);
+    }
+
+    @Test
+    public void testGetReference_NeverFromCache() {
+        when(teacherRepository.findById(1L)).thenReturn(Optional.of(teacher));
+        Teacher reference = Teacher.builder().id(1L).build();
+        when(teacherRepository.getById(1L)).thenReturn(reference);
+        teacherService.findById(1L);
+
+        assertThat(teacherService.getReference(1L)).isSameAs(reference);
+    }
 }
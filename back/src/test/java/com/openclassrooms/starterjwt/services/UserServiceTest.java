@@ -2,6 +2,9 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenCache;
+import com.openclassrooms.starterjwt.security.jwt.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +12,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,6 +27,15 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private AuthTokenCache authTokenCache;
+
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private UserService userService;
 
@@ -45,6 +60,18 @@ public class UserServiceTest {
         userService.delete(1L);
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(refreshTokenService, times(1)).revokeUser(1L);
+        verify(authTokenCache, times(1)).evictUser(1L);
+    }
+
+    @Test
+    public void testRevokeTokens() {
+        userService.revokeTokens(1L);
+
+        verify(tokenRevocationRegistry, times(1)).revokeUser(1L);
+        verify(refreshTokenService, times(1)).revokeUser(1L);
+        verify(authTokenCache, times(1)).evictUser(1L);
+        verify(userRepository, never()).deleteById(anyLong());
     }
 
     @Test
@@ -70,4 +97,22 @@ public class UserServiceTest {
         assertThat(found).isNull();
         verify(userRepository, times(1)).findById(99L);
     }
+
+    @Test
+    public void testFindAllById() {
+        when(userRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Collections.singletonList(user));
+
+        List<User> found = userService.findAllById(Arrays.asList(1L, 2L));
+
+        assertThat(found).containsExactly(user);
+        verify(userRepository, times(1)).findAllById(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    public void testGetReference() {
+        when(userRepository.getById(1L)).thenReturn(user);
+
+        assertThat(userService.getReference(1L)).isSameAs(user);
+        verify(userRepository, never()).findById(anyLong());
+    }
 }
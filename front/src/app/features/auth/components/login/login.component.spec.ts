@@ -112,6 +112,7 @@ describe('LoginComponent Integration Tests', () => {
 
     const mockSessionInfo: SessionInformation = {
       token: 'jwt-token',
+      refreshToken: 'refresh-token',
       type: 'Bearer',
       id: 1,
       username: 'yoga@studio.com',
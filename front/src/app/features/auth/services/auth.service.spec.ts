@@ -57,6 +57,7 @@ describe('AuthService', () => {
 
       const mockSessionInfo: SessionInformation = {
         token: 'token',
+        refreshToken: 'refresh-token',
         type: 'Bearer',
         id: 1,
         username: 'test@test.com',
@@ -5,8 +5,11 @@ import { MatCardModule } from '@angular/material/card';
 import { MatIconModule } from '@angular/material/icon';
 import { expect } from '@jest/globals';
 import { SessionService } from 'src/app/services/session.service';
+import { NEVER, Subject } from 'rxjs';
 import { SessionApiService } from '../../services/session-api.service';
+import { SessionStreamService } from '../../services/session-stream.service';
 import { Session } from '../../interfaces/session.interface';
+import { SessionEvent } from '../../interfaces/session-event.interface';
 
 import { ListComponent } from './list.component';
 
@@ -24,7 +27,10 @@ describe('ListComponent', () => {
     await TestBed.configureTestingModule({
       declarations: [ListComponent],
       imports: [HttpClientModule, MatCardModule, MatIconModule],
-      providers: [{ provide: SessionService, useValue: mockSessionService }]
+      providers: [
+        { provide: SessionService, useValue: mockSessionService },
+        { provide: SessionStreamService, useValue: { events: () => NEVER } }
+      ]
     })
       .compileComponents();
 
@@ -42,6 +48,7 @@ describe('ListComponent Integration Tests', () => {
   let component: ListComponent;
   let fixture: ComponentFixture<ListComponent>;
   let httpMock: HttpTestingController;
+  let events: Subject<SessionEvent>;
 
   const mockSessionService = {
     sessionInformation: {
@@ -50,11 +57,13 @@ describe('ListComponent Integration Tests', () => {
   };
 
   beforeEach(async () => {
+    events = new Subject<SessionEvent>();
     await TestBed.configureTestingModule({
       declarations: [ListComponent],
       imports: [HttpClientTestingModule, MatCardModule, MatIconModule],
       providers: [
         { provide: SessionService, useValue: mockSessionService },
+        { provide: SessionStreamService, useValue: { events: () => events } },
         SessionApiService
       ]
     })
@@ -69,30 +78,30 @@ describe('ListComponent Integration Tests', () => {
     httpMock.verify();
   });
 
-  it('(integration) should load sessions', (done) => {
-    const mockSessions: Session[] = [
-      {
-        id: 1,
-        name: 'Yoga Session',
-        description: 'Relaxing yoga',
-        date: new Date('2024-01-01'),
-        teacher_id: 1,
-        users: [1, 2],
-        createdAt: new Date(),
-        updatedAt: new Date()
-      },
-      {
-        id: 2,
-        name: 'Pilates Session',
-        description: 'Core strength',
-        date: new Date('2024-01-02'),
-        teacher_id: 2,
-        users: [3, 4],
-        createdAt: new Date(),
-        updatedAt: new Date()
-      }
-    ];
+  const mockSessions: Session[] = [
+    {
+      id: 1,
+      name: 'Yoga Session',
+      description: 'Relaxing yoga',
+      date: new Date('2024-01-01'),
+      teacher_id: 1,
+      users: [1, 2],
+      createdAt: new Date(),
+      updatedAt: new Date()
+    },
+    {
+      id: 2,
+      name: 'Pilates Session',
+      description: 'Core strength',
+      date: new Date('2024-01-02'),
+      teacher_id: 2,
+      users: [3, 4],
+      createdAt: new Date(),
+      updatedAt: new Date()
+    }
+  ];
 
+  it('(integration) should load sessions', (done) => {
     component.sessions$.subscribe(sessions => {
       expect(sessions).toEqual(mockSessions);
       expect(sessions.length).toBe(2);
@@ -102,5 +111,38 @@ describe('ListComponent Integration Tests', () => {
     const req = httpMock.expectOne('api/session');
     expect(req.request.method).toBe('GET');
     req.flush(mockSessions);
+    expect(component.nextCursor).toBeNull();
+  });
+
+  it('(integration) should append the next page when asked for more', () => {
+    let loaded: Session[] = [];
+    component.sessions$.subscribe(sessions => loaded = sessions);
+
+    httpMock.expectOne('api/session').flush([mockSessions[0]], { headers: { 'X-Next-Cursor': 'next' } });
+    expect(loaded).toEqual([mockSessions[0]]);
+    expect(component.nextCursor).toBe('next');
+
+    component.loadMore();
+    const req = httpMock.expectOne(request => request.url === 'api/session' && request.params.get('cursor') === 'next');
+    req.flush([mockSessions[1]]);
+
+    expect(loaded).toEqual(mockSessions);
+    expect(component.nextCursor).toBeNull();
+  });
+
+  it('(integration) should reload from the first page when a session changes', () => {
+    let loaded: Session[] = [];
+    component.sessions$.subscribe(sessions => loaded = sessions);
+
+    httpMock.expectOne('api/session').flush([mockSessions[0]], { headers: { 'X-Next-Cursor': 'next' } });
+    component.loadMore();
+    httpMock.expectOne(request => request.params.get('cursor') === 'next').flush([mockSessions[1]]);
+    expect(loaded).toEqual(mockSessions);
+
+    events.next({ eventKey: 'k1', type: 'DELETED', sessionId: 1, userId: null });
+    httpMock.expectOne(request => request.url === 'api/session' && !request.params.has('cursor')).flush([mockSessions[1]]);
+
+    expect(loaded).toEqual([mockSessions[1]]);
+    expect(component.nextCursor).toBeNull();
   });
 });
@@ -1,9 +1,10 @@
 import { Component } from '@angular/core';
-import { Observable } from 'rxjs';
+import { BehaviorSubject, Observable, concatMap, merge, of, scan, switchMap, tap } from 'rxjs';
 import { SessionInformation } from '../../../../interfaces/sessionInformation.interface';
 import { SessionService } from '../../../../services/session.service';
 import { Session } from '../../interfaces/session.interface';
 import { SessionApiService } from '../../services/session-api.service';
+import { SessionStreamService } from '../../services/session-stream.service';
 
 @Component({
   selector: 'app-list',
@@ -12,13 +13,37 @@ import { SessionApiService } from '../../services/session-api.service';
 })
 export class ListComponent {
 
-  public sessions$: Observable<Session[]> = this.sessionApiService.all();
+  public nextCursor: string | null = null;
+
+  private cursor$ = new BehaviorSubject<string | undefined>(undefined);
+
+  // The API answers one page at a time; each page read is appended to the ones before it.
+  // Any change pushed by the server reloads the list from its first page.
+  public sessions$: Observable<Session[]> = merge(of(null), this.sessionStreamService.events()).pipe(
+    switchMap(() => {
+      this.cursor$ = new BehaviorSubject<string | undefined>(undefined);
+      return this.cursor$.pipe(
+        concatMap(cursor => this.sessionApiService.page(cursor)),
+        tap(page => this.nextCursor = page.nextCursor),
+        scan((sessions: Session[], page) => [...sessions, ...page.sessions], [])
+      );
+    })
+  );
 
   constructor(
     private sessionService: SessionService,
-    private sessionApiService: SessionApiService
+    private sessionApiService: SessionApiService,
+    private sessionStreamService: SessionStreamService
   ) { }
 
+  public loadMore(): void {
+    if (this.nextCursor) {
+      const cursor = this.nextCursor;
+      this.nextCursor = null;
+      this.cursor$.next(cursor);
+    }
+  }
+
   get user(): SessionInformation | undefined {
     return this.sessionService.sessionInformation;
   }
@@ -0,0 +1,8 @@
+export type SessionEventType = 'CREATED' | 'UPDATED' | 'DELETED' | 'PARTICIPATED' | 'LEFT';
+
+export interface SessionEvent {
+  eventKey: string;
+  type: SessionEventType;
+  sessionId: number;
+  userId: number | null;
+}
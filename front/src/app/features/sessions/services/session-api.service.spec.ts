@@ -38,17 +38,29 @@ describe('SessionsService', () => {
     expect(service).toBeTruthy();
   });
 
-  describe('all', () => {
-    it('(integration) should return all sessions', () => {
+  describe('page', () => {
+    it('(integration) should return the first page and its next cursor', () => {
       const mockSessions: Session[] = [mockSession];
 
-      service.all().subscribe(sessions => {
-        expect(sessions).toEqual(mockSessions);
+      service.page().subscribe(page => {
+        expect(page.sessions).toEqual(mockSessions);
+        expect(page.nextCursor).toBe('next');
       });
 
       const req = httpMock.expectOne('api/session');
       expect(req.request.method).toBe('GET');
-      req.flush(mockSessions);
+      req.flush(mockSessions, { headers: { 'X-Next-Cursor': 'next' } });
+    });
+
+    it('(integration) should send the cursor of the page to read', () => {
+      service.page('next').subscribe(page => {
+        expect(page.sessions).toEqual([mockSession]);
+        expect(page.nextCursor).toBeNull();
+      });
+
+      const req = httpMock.expectOne(request => request.url === 'api/session' && request.params.get('cursor') === 'next');
+      expect(req.request.method).toBe('GET');
+      req.flush([mockSession]);
     });
   });
 
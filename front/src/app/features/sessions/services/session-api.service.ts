@@ -1,7 +1,8 @@
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams } from '@angular/common/http';
 import { Injectable } from '@angular/core';
-import { Observable } from 'rxjs';
+import { Observable, map } from 'rxjs';
 import { Session } from '../interfaces/session.interface';
+import { SessionPage } from '../interfaces/session-page.interface';
 
 @Injectable({
   providedIn: 'root'
@@ -10,11 +11,19 @@ export class SessionApiService {
 
   private pathService = 'api/session';
 
+  private nextCursorHeader = 'X-Next-Cursor';
+
   constructor(private httpClient: HttpClient) {
   }
 
-  public all(): Observable<Session[]> {
-    return this.httpClient.get<Session[]>(this.pathService);
+  public page(cursor?: string): Observable<SessionPage> {
+    const params = cursor ? new HttpParams().set('cursor', cursor) : undefined;
+    return this.httpClient.get<Session[]>(this.pathService, { params, observe: 'response' }).pipe(
+      map(response => ({
+        sessions: response.body ?? [],
+        nextCursor: response.headers.get(this.nextCursorHeader)
+      }))
+    );
   }
 
   public detail(id: string): Observable<Session> {
@@ -0,0 +1,82 @@
+import { HttpClientTestingModule, HttpTestingController } from '@angular/common/http/testing';
+import { TestBed, fakeAsync, tick } from '@angular/core/testing';
+import { expect } from '@jest/globals';
+
+import { SessionStreamService } from './session-stream.service';
+import { SessionEvent } from '../interfaces/session-event.interface';
+
+class FakeEventSource {
+  static instances: FakeEventSource[] = [];
+
+  public onerror: (() => void) | null = null;
+
+  public closed = false;
+
+  private listeners: { [type: string]: (event: MessageEvent) => void } = {};
+
+  constructor(public url: string) {
+    FakeEventSource.instances.push(this);
+  }
+
+  addEventListener(type: string, listener: (event: MessageEvent) => void): void {
+    this.listeners[type] = listener;
+  }
+
+  emit(type: string, data: object): void {
+    this.listeners[type]({ data: JSON.stringify(data) } as MessageEvent);
+  }
+
+  close(): void {
+    this.closed = true;
+  }
+}
+
+describe('SessionStreamService', () => {
+  let service: SessionStreamService;
+  let httpMock: HttpTestingController;
+
+  beforeEach(() => {
+    FakeEventSource.instances = [];
+    (global as any).EventSource = FakeEventSource;
+    TestBed.configureTestingModule({
+      imports: [HttpClientTestingModule]
+    });
+    service = TestBed.inject(SessionStreamService);
+    httpMock = TestBed.inject(HttpTestingController);
+  });
+
+  afterEach(() => {
+    httpMock.verify();
+  });
+
+  it('(integration) should open the stream with a ticket and emit its events', () => {
+    const received: SessionEvent[] = [];
+    const subscription = service.events().subscribe(event => received.push(event));
+
+    const req = httpMock.expectOne('api/session/stream/ticket');
+    expect(req.request.method).toBe('POST');
+    req.flush({ ticket: 'abc' });
+
+    const source = FakeEventSource.instances[0];
+    expect(source.url).toBe('api/session/stream?ticket=abc');
+    source.emit('CREATED', { eventKey: 'k1', type: 'CREATED', sessionId: 1, userId: null });
+    expect(received).toEqual([{ eventKey: 'k1', type: 'CREATED', sessionId: 1, userId: null }]);
+
+    subscription.unsubscribe();
+    expect(source.closed).toBe(true);
+  });
+
+  it('(integration) should reconnect with a fresh ticket when the stream drops', fakeAsync(() => {
+    const subscription = service.events().subscribe();
+    httpMock.expectOne('api/session/stream/ticket').flush({ ticket: 'first' });
+
+    FakeEventSource.instances[0].onerror!();
+    expect(FakeEventSource.instances[0].closed).toBe(true);
+
+    tick(5000);
+    httpMock.expectOne('api/session/stream/ticket').flush({ ticket: 'second' });
+    expect(FakeEventSource.instances[1].url).toBe('api/session/stream?ticket=second');
+
+    subscription.unsubscribe();
+  }));
+});
@@ -0,0 +1,39 @@
+import { HttpClient } from '@angular/common/http';
+import { Injectable } from '@angular/core';
+import { Observable, retry, switchMap } from 'rxjs';
+import { SessionEvent, SessionEventType } from '../interfaces/session-event.interface';
+
+@Injectable({
+  providedIn: 'root'
+})
+export class SessionStreamService {
+
+  private pathService = 'api/session/stream';
+
+  private eventTypes: SessionEventType[] = ['CREATED', 'UPDATED', 'DELETED', 'PARTICIPATED', 'LEFT'];
+
+  private reconnectDelayMs = 5000;
+
+  constructor(private httpClient: HttpClient) {
+  }
+
+  /**
+   * Every session change pushed by the server, for as long as the observable is subscribed.
+   * EventSource cannot send the bearer token, so each connection is opened with a single-use
+   * ticket; as the ticket is spent, a dropped connection is reopened here with a fresh one
+   * rather than by the browser.
+   */
+  public events(): Observable<SessionEvent> {
+    return this.httpClient.post<{ ticket: string }>(`${this.pathService}/ticket`, null).pipe(
+      switchMap(({ ticket }) => new Observable<SessionEvent>(subscriber => {
+        const source = new EventSource(`${this.pathService}?ticket=${encodeURIComponent(ticket)}`);
+        const listener = (event: MessageEvent) => subscriber.next(JSON.parse(event.data));
+        this.eventTypes.forEach(type => source.addEventListener(type, listener as EventListener));
+        source.onerror = () => subscriber.error(new Error('Session stream closed'));
+        return () => source.close();
+      })),
+      retry({ delay: this.reconnectDelayMs })
+    );
+  }
+
+}
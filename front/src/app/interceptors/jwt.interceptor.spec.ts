@@ -0,0 +1,77 @@
+import { HTTP_INTERCEPTORS, HttpClient } from '@angular/common/http';
+import { HttpClientTestingModule, HttpTestingController } from '@angular/common/http/testing';
+import { TestBed } from '@angular/core/testing';
+import { expect } from '@jest/globals';
+import { SessionService } from '../services/session.service';
+
+import { JwtInterceptor } from './jwt.interceptor';
+
+describe('JwtInterceptor', () => {
+  let httpClient: HttpClient;
+  let httpMock: HttpTestingController;
+  let sessionService: SessionService;
+
+  beforeEach(() => {
+    TestBed.configureTestingModule({
+      imports: [HttpClientTestingModule],
+      providers: [{ provide: HTTP_INTERCEPTORS, useClass: JwtInterceptor, multi: true }]
+    });
+    httpClient = TestBed.inject(HttpClient);
+    httpMock = TestBed.inject(HttpTestingController);
+    sessionService = TestBed.inject(SessionService);
+    sessionService.logIn({
+      token: 'expired',
+      refreshToken: 'refresh',
+      type: 'Bearer',
+      id: 1,
+      username: 'test@test.com',
+      firstName: 'Test',
+      lastName: 'User',
+      admin: false
+    });
+  });
+
+  afterEach(() => {
+    httpMock.verify();
+  });
+
+  it('should send the access token', () => {
+    httpClient.get('api/session').subscribe();
+
+    const req = httpMock.expectOne('api/session');
+    expect(req.request.headers.get('Authorization')).toBe('Bearer expired');
+    req.flush([]);
+  });
+
+  it('(integration) should refresh once and replay the refused requests', () => {
+    const results: any[] = [];
+    httpClient.get('api/session').subscribe(body => results.push(body));
+    httpClient.get('api/teacher').subscribe(body => results.push(body));
+
+    httpMock.expectOne('api/session').flush(null, { status: 401, statusText: 'Unauthorized' });
+    httpMock.expectOne('api/teacher').flush(null, { status: 401, statusText: 'Unauthorized' });
+
+    const refresh = httpMock.expectOne('api/auth/refresh');
+    expect(refresh.request.body).toEqual({ refreshToken: 'refresh' });
+    refresh.flush({ token: 'fresh', type: 'Bearer', refreshToken: 'next-refresh' });
+
+    const session = httpMock.expectOne('api/session');
+    expect(session.request.headers.get('Authorization')).toBe('Bearer fresh');
+    session.flush(['session']);
+    httpMock.expectOne('api/teacher').flush(['teacher']);
+
+    expect(results).toEqual([['session'], ['teacher']]);
+    expect(sessionService.sessionInformation!.refreshToken).toBe('next-refresh');
+  });
+
+  it('(integration) should log out when the refresh token is refused', () => {
+    let failed = false;
+    httpClient.get('api/session').subscribe({ error: () => failed = true });
+
+    httpMock.expectOne('api/session').flush(null, { status: 401, statusText: 'Unauthorized' });
+    httpMock.expectOne('api/auth/refresh').flush(null, { status: 401, statusText: 'Unauthorized' });
+
+    expect(failed).toBe(true);
+    expect(sessionService.isLogged).toBe(false);
+  });
+});
@@ -1,19 +1,61 @@
-import { HttpHandler, HttpInterceptor, HttpRequest } from "@angular/common/http";
+import { HttpErrorResponse, HttpEvent, HttpHandler, HttpInterceptor, HttpRequest, HttpResponse } from "@angular/common/http";
 import { Injectable } from "@angular/core";
+import { Observable, catchError, filter, finalize, map, shareReplay, switchMap, throwError } from 'rxjs';
+import { TokenRefreshResponse } from '../features/auth/interfaces/tokenRefreshResponse.interface';
 import { SessionService } from '../services/session.service';
 
 @Injectable({ providedIn: 'root' })
 export class JwtInterceptor implements HttpInterceptor {
+  private authPath = 'api/auth';
+
+  // Shared by every request refused while a refresh is in flight, so the refresh token is spent once
+  private refreshing$: Observable<void> | null = null;
+
   constructor(private sessionService: SessionService) {}
 
-  public intercept(request: HttpRequest<any>, next: HttpHandler) {
-    if (this.sessionService.isLogged) {
-      request = request.clone({
-        setHeaders: {
-          Authorization: `Bearer ${this.sessionService.sessionInformation!.token}`,
-        },
-      });
+  public intercept(request: HttpRequest<any>, next: HttpHandler): Observable<HttpEvent<any>> {
+    if (!this.sessionService.isLogged) {
+      return next.handle(request);
+    }
+    return next.handle(this.withToken(request)).pipe(
+      catchError(error => {
+        if (!(error instanceof HttpErrorResponse) || error.status !== 401 || request.url.startsWith(this.authPath)) {
+          return throwError(() => error);
+        }
+        // Access tokens are short-lived: trade the refresh token for a new pair and replay once
+        return this.refresh(next).pipe(
+          switchMap(() => next.handle(this.withToken(request)))
+        );
+      })
+    );
+  }
+
+  private withToken(request: HttpRequest<any>): HttpRequest<any> {
+    return request.clone({
+      setHeaders: {
+        Authorization: `Bearer ${this.sessionService.sessionInformation!.token}`,
+      },
+    });
+  }
+
+  /**
+   * Sent down the rest of the chain rather than through HttpClient, which would inject this
+   * interceptor into itself. A refused refresh ends the session.
+   */
+  private refresh(next: HttpHandler): Observable<void> {
+    if (!this.refreshing$) {
+      const body = { refreshToken: this.sessionService.sessionInformation!.refreshToken };
+      this.refreshing$ = next.handle(new HttpRequest('POST', `${this.authPath}/refresh`, body)).pipe(
+        filter((event): event is HttpResponse<TokenRefreshResponse> => event instanceof HttpResponse),
+        map(response => this.sessionService.refreshed(response.body!)),
+        catchError(error => {
+          this.sessionService.logOut();
+          return throwError(() => error);
+        }),
+        finalize(() => this.refreshing$ = null),
+        shareReplay(1)
+      );
     }
-    return next.handle(request);
+    return this.refreshing$;
   }
 }
@@ -1,6 +1,7 @@
 
 export interface SessionInformation {
   token: string;
+  refreshToken: string;
   type: string;
   id: number;
   username: string;
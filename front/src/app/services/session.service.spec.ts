@@ -14,4 +14,23 @@ describe('SessionService', () => {
   it('should be created', () => {
     expect(service).toBeTruthy();
   });
+
+  it('should swap in refreshed tokens', () => {
+    service.logIn({
+      token: 'old',
+      refreshToken: 'old-refresh',
+      type: 'Bearer',
+      id: 1,
+      username: 'test@test.com',
+      firstName: 'Test',
+      lastName: 'User',
+      admin: false
+    });
+
+    service.refreshed({ token: 'new', type: 'Bearer', refreshToken: 'new-refresh' });
+
+    expect(service.sessionInformation!.token).toBe('new');
+    expect(service.sessionInformation!.refreshToken).toBe('new-refresh');
+    expect(service.isLogged).toBe(true);
+  });
 });
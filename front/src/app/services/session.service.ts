@@ -1,6 +1,7 @@
 import { Injectable } from '@angular/core';
 import { BehaviorSubject, Observable } from 'rxjs';
 import { SessionInformation } from '../interfaces/sessionInformation.interface';
+import { TokenRefreshResponse } from '../features/auth/interfaces/tokenRefreshResponse.interface';
 
 @Injectable({
   providedIn: 'root'
@@ -22,6 +23,13 @@ export class SessionService {
     this.next();
   }
 
+  public refreshed(tokens: TokenRefreshResponse): void {
+    if (this.sessionInformation) {
+      this.sessionInformation.token = tokens.token;
+      this.sessionInformation.refreshToken = tokens.refreshToken;
+    }
+  }
+
   public logOut(): void {
     this.sessionInformation = undefined;
     this.isLogged = false;
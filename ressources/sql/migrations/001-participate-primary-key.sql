@@ -0,0 +1,20 @@
+-- Gives PARTICIPATE its (session_id, user_id) primary key. Earlier versions could record the
+-- same user twice in one session, so duplicate rows, and rows missing either id, go first.
+START TRANSACTION;
+
+CREATE TEMPORARY TABLE `PARTICIPATE_DISTINCT` AS
+  SELECT DISTINCT `user_id`, `session_id` FROM `PARTICIPATE`
+  WHERE `user_id` IS NOT NULL AND `session_id` IS NOT NULL;
+
+DELETE FROM `PARTICIPATE`;
+INSERT INTO `PARTICIPATE` (`user_id`, `session_id`)
+  SELECT `user_id`, `session_id` FROM `PARTICIPATE_DISTINCT`;
+
+COMMIT;
+
+DROP TEMPORARY TABLE `PARTICIPATE_DISTINCT`;
+
+ALTER TABLE `PARTICIPATE`
+  MODIFY `user_id` INT NOT NULL,
+  MODIFY `session_id` INT NOT NULL,
+  ADD PRIMARY KEY (`session_id`, `user_id`);
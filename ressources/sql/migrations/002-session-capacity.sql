@@ -0,0 +1,2 @@
+-- Adds the optional seat limit of a session. Existing sessions keep no limit (NULL).
+ALTER TABLE `SESSIONS` ADD `capacity` INT AFTER `description`;
@@ -0,0 +1,14 @@
+-- Adds the rotating refresh tokens, stored as SHA-256 hashes only. Later migrations add
+-- columns to this table, so it is created here as it first shipped.
+CREATE TABLE `REFRESH_TOKENS` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `token_hash` CHAR(64) NOT NULL UNIQUE,
+  `user_id` INT NOT NULL,
+  `email` VARCHAR(255) NOT NULL,
+  `admin` BOOLEAN NOT NULL DEFAULT false,
+  `expires_at` TIMESTAMP NOT NULL,
+  INDEX (`user_id`),
+  INDEX (`expires_at`)
+);
+
+ALTER TABLE `REFRESH_TOKENS` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
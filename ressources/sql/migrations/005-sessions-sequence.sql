@@ -0,0 +1,17 @@
+-- Moves session ids from AUTO_INCREMENT to the pooled SESSIONS_SEQ table.
+-- Run once on databases created from an earlier script.sql; new databases already have it.
+
+-- PARTICIPATE and WAITLIST reference SESSIONS.id, and MySQL refuses to
+-- redefine a referenced column while the checks are on. The type is unchanged.
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE `SESSIONS` MODIFY `id` INT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
+
+CREATE TABLE IF NOT EXISTS `SESSIONS_SEQ` (
+  `next_val` BIGINT
+);
+
+-- Hibernate's pooled optimizer reads next_val as the END of its next block of 50, so the
+-- first id it hands out is next_val - 49. Seeding MAX(id) + 50 makes that MAX(id) + 1.
+DELETE FROM `SESSIONS_SEQ`;
+INSERT INTO `SESSIONS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 50 FROM `SESSIONS`;
@@ -0,0 +1,11 @@
+-- Adds the transactional outbox of session events, which OutboxRelay publishes and purges.
+CREATE TABLE `OUTBOX_EVENTS` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `event_key` CHAR(36) NOT NULL UNIQUE,
+  `type` VARCHAR(20) NOT NULL,
+  `session_id` INT NOT NULL,
+  `user_id` INT,
+  `created_at` TIMESTAMP NOT NULL,
+  `published_at` TIMESTAMP NULL,
+  INDEX (`published_at`, `id`)
+);
@@ -0,0 +1,5 @@
+-- Persists token revocation. Tokens carry the token_version their user had when they were
+-- issued, and revoking a user's tokens bumps it, so a revocation survives restarts and holds
+-- on every node. Existing tokens have no version and count as version 0.
+ALTER TABLE `USERS` ADD `token_version` INT NOT NULL DEFAULT 0;
+ALTER TABLE `REFRESH_TOKENS` ADD `token_version` INT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Keeps the user's names on refresh tokens, so an access token minted by a refresh carries the
+-- same firstName and lastName claims as one minted at login. Existing rows are filled in.
+ALTER TABLE `REFRESH_TOKENS` ADD `first_name` VARCHAR(40) AFTER `email`;
+ALTER TABLE `REFRESH_TOKENS` ADD `last_name` VARCHAR(40) AFTER `first_name`;
+
+UPDATE `REFRESH_TOKENS` r JOIN `USERS` u ON u.`id` = r.`user_id`
+SET r.`first_name` = u.`first_name`, r.`last_name` = u.`last_name`;
@@ -1,21 +1,31 @@
+-- updated_at keeps microseconds because ETags are built from it; two edits in one second must differ.
 CREATE TABLE `TEACHERS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `last_name` VARCHAR(40),
   `first_name` VARCHAR(40),
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
 );
 
 CREATE TABLE `SESSIONS` (
-  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `id` INT PRIMARY KEY,
   `name` VARCHAR(50),
   `description` VARCHAR(2000),
+  `capacity` INT,
   `date` TIMESTAMP,
   `teacher_id` int,
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
+);
+
+-- Session ids come from a pooled sequence (blocks of 50) so inserts can be batched.
+-- Databases created before this table existed must run migrations/005-sessions-sequence.sql.
+CREATE TABLE `SESSIONS_SEQ` (
+  `next_val` BIGINT
 );
 
+INSERT INTO `SESSIONS_SEQ` VALUES (1);
+
 CREATE TABLE `USERS` (
   `id` INT PRIMARY KEY AUTO_INCREMENT,
   `last_name` VARCHAR(40),
@@ -23,18 +33,56 @@ CREATE TABLE `USERS` (
   `admin` BOOLEAN NOT NULL DEFAULT false,
   `email` VARCHAR(255),
   `password` VARCHAR(255),
+  `token_version` INT NOT NULL DEFAULT 0,
   `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+  `updated_at` DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
 );
 
 CREATE TABLE `PARTICIPATE` (
-  `user_id` INT, 
-  `session_id` INT
+  `user_id` INT NOT NULL,
+  `session_id` INT NOT NULL,
+  PRIMARY KEY (`session_id`, `user_id`)
+);
+
+CREATE TABLE `WAITLIST` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY (`session_id`, `user_id`)
+);
+
+CREATE TABLE `REFRESH_TOKENS` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `token_hash` CHAR(64) NOT NULL UNIQUE,
+  `user_id` INT NOT NULL,
+  `email` VARCHAR(255) NOT NULL,
+  `first_name` VARCHAR(40),
+  `last_name` VARCHAR(40),
+  `admin` BOOLEAN NOT NULL DEFAULT false,
+  `token_version` INT NOT NULL DEFAULT 0,
+  `expires_at` TIMESTAMP NOT NULL,
+  INDEX (`user_id`),
+  INDEX (`expires_at`)
+);
+
+CREATE TABLE `OUTBOX_EVENTS` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `event_key` CHAR(36) NOT NULL UNIQUE,
+  `type` VARCHAR(20) NOT NULL,
+  `session_id` INT NOT NULL,
+  `user_id` INT,
+  `created_at` TIMESTAMP NOT NULL,
+  `published_at` TIMESTAMP NULL,
+  INDEX (`published_at`, `id`)
 );
 
 ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `REFRESH_TOKENS` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
 
 INSERT INTO TEACHERS (first_name, last_name)
 VALUES ('Margot', 'DELAHAYE'),